@@ -0,0 +1,31 @@
+package es.uji.vj1229.framework.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import es.uji.vj1229.framework.AnimationTiming;
+
+/**
+ * The advance of the time and the selection of the frame done by
+ * {@code AnimatedBitmap.onUpdate} and {@code AnimationSystem.update} for each animation.
+ */
+@State(Scope.Thread)
+public class AnimationTimingBenchmark {
+    private static final float DELTA_TIME = 1 / 60f;
+    private static final float FRAME_DURATION = 0.1f;
+    private static final int N_FRAMES = 8;
+    private static final float TOTAL_TIME = FRAME_DURATION * N_FRAMES;
+
+    @Param({"false", "true"})
+    public boolean looping;
+
+    private float time;
+
+    @Benchmark
+    public int frameIndex() {
+        time = AnimationTiming.advance(time, DELTA_TIME, TOTAL_TIME, looping);
+        return AnimationTiming.frameIndex(time, FRAME_DURATION, N_FRAMES, looping);
+    }
+}
@@ -0,0 +1,30 @@
+package es.uji.vj1229.framework.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import es.uji.vj1229.framework.Clipping;
+
+/**
+ * The computation of the rectangles done by the clipped {@code Graphics.drawBitmap} methods.
+ */
+@State(Scope.Thread)
+public class ClippingBenchmark {
+    private final int[] out = new int[Clipping.SIZE];
+    private float x = -50;
+
+    @Benchmark
+    public int clipHorizontally() {
+        x = x > 400 ? -50 : x + 1.5f;
+        Clipping.clipHorizontally(x, 20, 64, 64, 0, 320, out);
+        return out[Clipping.DST];
+    }
+
+    @Benchmark
+    public int clipToTarget() {
+        x = x > 400 ? -50 : x + 1.5f;
+        Clipping.clipToTarget(x, 20, 32, 0, 64, 64, 320, 480, out);
+        return out[Clipping.SRC + 2];
+    }
+}
@@ -0,0 +1,56 @@
+package es.uji.vj1229.framework.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+
+import es.uji.vj1229.framework.HitTargetGrid;
+import es.uji.vj1229.framework.TouchEventBatch;
+import es.uji.vj1229.framework.TouchEventQueue;
+
+/**
+ * Finding the targets of the touch events of a frame and moving targets in a
+ * {@link HitTargetGrid}, with a growing number of targets in a 1080x1920 screen.
+ */
+@State(Scope.Thread)
+public class HitTargetGridBenchmark {
+    private static final int WIDTH = 1080, HEIGHT = 1920;
+
+    @Param({"10", "100", "1000"})
+    public int targets;
+
+    private HitTargetGrid grid;
+    private final TouchEventBatch batch = new TouchEventBatch(16);
+    private float x;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        grid = new HitTargetGrid(WIDTH, HEIGHT, 128);
+        for (int i = 0; i < targets; i++) {
+            if (i % 2 == 0)
+                grid.addRect(random.nextInt(WIDTH), random.nextInt(HEIGHT), 96, 96, i % 4);
+            else
+                grid.addCircle(random.nextInt(WIDTH), random.nextInt(HEIGHT), 48, i % 4);
+        }
+        for (int i = 0; i < batch.getCapacity(); i++)
+            batch.add(TouchEventQueue.TOUCH_DRAGGED, random.nextInt(WIDTH), random.nextInt(HEIGHT), 0, i);
+    }
+
+    @Benchmark
+    public int resolve() {
+        grid.resolve(batch);
+        return batch.target[batch.count - 1];
+    }
+
+    @Benchmark
+    public void move() {
+        x = x > WIDTH ? 0 : x + 7.5f;
+        grid.setCircle(0, x, HEIGHT / 2f, 48);
+    }
+}
@@ -0,0 +1,41 @@
+package es.uji.vj1229.framework.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import es.uji.vj1229.framework.Pool;
+
+/**
+ * Obtaining and returning objects of a {@link Pool}, as the {@code TouchHandler} does
+ * with the touch events of each frame.
+ */
+@State(Scope.Thread)
+public class PoolBenchmark {
+    @Param({"1", "16", "100"})
+    public int objectsPerFrame;
+
+    private Pool<Object> pool;
+    private Object[] objects;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = new Pool<>(Object::new, 100);
+        pool.prewarm(objectsPerFrame);
+        objects = new Object[objectsPerFrame];
+    }
+
+    @Benchmark
+    public void acquireAndRelease(Blackhole blackhole) {
+        for (int i = 0; i < objectsPerFrame; i++)
+            objects[i] = pool.newObject();
+        for (int i = 0; i < objectsPerFrame; i++) {
+            blackhole.consume(objects[i]);
+            pool.free(objects[i]);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package es.uji.vj1229.framework.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import es.uji.vj1229.framework.TouchEventBatch;
+import es.uji.vj1229.framework.TouchEventQueue;
+
+/**
+ * Queueing the touch events of a frame and draining them into a {@link TouchEventBatch},
+ * as the {@code TouchHandler} does in {@code getTouchEvents}.
+ */
+@State(Scope.Thread)
+public class TouchEventQueueBenchmark {
+    @Param({"4", "64"})
+    public int eventsPerFrame;
+
+    @Param({"false", "true"})
+    public boolean coalesceDrags;
+
+    private TouchEventQueue queue;
+    private TouchEventBatch batch;
+    private long time;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = new TouchEventQueue(256, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        batch = new TouchEventBatch(queue.getCapacity());
+    }
+
+    @Benchmark
+    public int offerAndDrain() {
+        queue.offer(TouchEventQueue.TOUCH_DOWN, 0, 0, 0, time);
+        for (int i = 1; i < eventsPerFrame - 1; i++)
+            queue.offer(TouchEventQueue.TOUCH_DRAGGED, i, i, i & 1, time + i);
+        queue.offer(TouchEventQueue.TOUCH_UP, eventsPerFrame, eventsPerFrame, 0, time + eventsPerFrame);
+        time += eventsPerFrame;
+        queue.drainTo(batch, coalesceDrags);
+        return batch.count;
+    }
+}
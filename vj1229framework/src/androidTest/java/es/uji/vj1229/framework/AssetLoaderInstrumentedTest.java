@@ -0,0 +1,140 @@
+package es.uji.vj1229.framework;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class AssetLoaderInstrumentedTest {
+    private static final float EPSILON = 1e-6f;
+
+    private ExecutorService executor;
+    private AssetLoader loader;
+
+    @Before
+    public void setUp() {
+        Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        executor = Executors.newSingleThreadExecutor();
+        loader = new AssetLoader(context, executor);
+    }
+
+    @After
+    public void tearDown() {
+        loader.shutdown();
+    }
+
+    @Test
+    public void callbacksWaitForDispatch() throws Exception {
+        List<String> results = new ArrayList<>();
+        Future<String> future = loader.submit(() -> "done", results::add);
+        assertEquals("done", future.get());
+        assertTrue(results.isEmpty());
+        assertFalse(loader.isIdle());
+        loader.dispatchCallbacks();
+        assertEquals(1, results.size());
+        assertTrue(loader.isIdle());
+    }
+
+    @Test
+    public void reportsProgress() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        Future<Integer> first = loader.submit(() -> 1, null);
+        Future<Integer> second = loader.submit(() -> {
+            gate.await();
+            return 2;
+        }, null);
+        first.get();
+        assertEquals(0.5f, loader.getProgress(), EPSILON);
+        gate.countDown();
+        second.get();
+        assertEquals(1, loader.getProgress(), EPSILON);
+        assertTrue(loader.isIdle());
+    }
+
+    @Test
+    public void reportsErrors() throws Exception {
+        List<Exception> errors = new ArrayList<>();
+        Future<Object> future = loader.submit(() -> {
+            throw new IllegalStateException("failed");
+        }, new AssetLoader.Callback<Object>() {
+            @Override
+            public void onLoaded(Object result) {
+            }
+
+            @Override
+            public void onError(Exception exception) {
+                errors.add(exception);
+            }
+        });
+        try {
+            future.get();
+        } catch (ExecutionException expected) {
+        }
+        loader.dispatchCallbacks();
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void notifiesFinishedTasks() throws Exception {
+        CountDownLatch finished = new CountDownLatch(1);
+        loader.setFinishListener(finished::countDown);
+        loader.submit(() -> 1, null).get();
+        finished.await();
+    }
+
+    @Test
+    public void reusesTheSmallestBitmapThatFits() {
+        Bitmap small = Bitmap.createBitmap(8, 8, Bitmap.Config.ARGB_8888);
+        Bitmap big = Bitmap.createBitmap(32, 32, Bitmap.Config.ARGB_8888);
+        loader.reuseBitmap(big);
+        loader.reuseBitmap(small);
+        loader.reuseBitmap(Bitmap.createBitmap(Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888)));
+        assertSame(small, loader.takeReusable(100));
+        assertSame(big, loader.takeReusable(100));
+        assertNull(loader.takeReusable(100));
+    }
+
+    @Test
+    public void scalesToTheSizeRequested() {
+        Bitmap decoded = Bitmap.createBitmap(64, 32, Bitmap.Config.RGB_565);
+        decoded.eraseColor(Color.RED);
+        Bitmap scaled = loader.scale(decoded, 20, 10);
+        assertEquals(20, scaled.getWidth());
+        assertEquals(10, scaled.getHeight());
+        assertEquals(Bitmap.Config.RGB_565, scaled.getConfig());
+        assertTrue(scaled.isMutable());
+        assertEquals(Color.RED, scaled.getPixel(10, 5));
+        assertSame(decoded, loader.takeReusable(100));
+    }
+
+    @Test
+    public void keepsBitmapsOfTheSizeRequested() {
+        Bitmap decoded = Bitmap.createBitmap(20, 10, Bitmap.Config.ARGB_8888);
+        assertSame(decoded, loader.scale(decoded, 20, 10));
+        assertSame(decoded, loader.scale(decoded, 0, 0));
+        assertNull(loader.takeReusable(1));
+    }
+}
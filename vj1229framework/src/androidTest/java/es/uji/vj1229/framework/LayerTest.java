@@ -0,0 +1,125 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class LayerTest {
+    private static final float EPSILON = 1e-6f;
+
+    // Draws a rectangle of a color and counts how many times it is called
+    private static class RectRenderer implements Layer.Renderer {
+        final float x, y, width, height;
+        final int color;
+        int renders;
+
+        RectRenderer(float x, float y, float width, float height, int color) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+            this.height = height;
+            this.color = color;
+        }
+
+        @Override
+        public void onRender(Graphics graphics) {
+            renders++;
+            graphics.drawRect(x, y, width, height, color);
+        }
+    }
+
+    @Test
+    public void rendersOnlyWhenInvalid() {
+        Graphics graphics = new Graphics(16, 16);
+        RectRenderer renderer = new RectRenderer(0, 0, 16, 16, Color.RED);
+        Layer layer = graphics.addLayer("background", renderer);
+        assertTrue(layer.isInvalid());
+
+        graphics.drawLayers();
+        graphics.drawLayers();
+        assertEquals(1, renderer.renders);
+        assertFalse(layer.isInvalid());
+        assertEquals(Color.RED, graphics.getFrameBuffer().getPixel(8, 8));
+
+        layer.invalidate();
+        graphics.drawLayers();
+        assertEquals(2, renderer.renders);
+    }
+
+    @Test
+    public void scrollsWithoutRendering() {
+        Graphics graphics = new Graphics(16, 16);
+        RectRenderer renderer = new RectRenderer(4, 0, 4, 16, Color.RED);
+        Layer layer = graphics.addLayer("background", renderer);
+        graphics.clear(Color.BLUE);
+        graphics.drawLayers();
+
+        layer.scroll(2, 0);
+        layer.scroll(2, 0);
+        graphics.clear(Color.BLUE);
+        graphics.drawLayers();
+
+        Bitmap bitmap = graphics.getFrameBuffer();
+        assertEquals(1, renderer.renders);
+        assertEquals(4, layer.getScrollX(), EPSILON);
+        assertEquals(Color.RED, bitmap.getPixel(1, 8));
+        assertEquals(Color.BLUE, bitmap.getPixel(5, 8));
+    }
+
+    @Test
+    public void wrapsWithNegativeScroll() {
+        Graphics graphics = new Graphics(16, 16);
+        Layer layer = graphics.addLayer("tiles", 8, 8, new RectRenderer(0, 0, 4, 8, Color.RED));
+        layer.setWrap(true);
+        layer.scroll(-10, -3);
+        assertEquals(-2, layer.getScrollX(), EPSILON);
+        assertEquals(-3, layer.getScrollY(), EPSILON);
+
+        graphics.clear(Color.BLUE);
+        graphics.drawLayers();
+
+        // The copies of the layer start at x = -6, 2 and 10
+        Bitmap bitmap = graphics.getFrameBuffer();
+        for (int y = 0; y < 16; y += 5) {
+            assertEquals(Color.BLUE, bitmap.getPixel(0, y));
+            assertEquals(Color.RED, bitmap.getPixel(3, y));
+            assertEquals(Color.BLUE, bitmap.getPixel(7, y));
+            assertEquals(Color.RED, bitmap.getPixel(11, y));
+            assertEquals(Color.BLUE, bitmap.getPixel(15, y));
+        }
+    }
+
+    @Test
+    public void drawsInTheOrderOfAddition() {
+        Graphics graphics = new Graphics(16, 16);
+        graphics.addLayer("back", new RectRenderer(0, 0, 16, 16, Color.RED));
+        Layer front = graphics.addLayer("front", new RectRenderer(0, 0, 8, 16, Color.GREEN));
+        graphics.clear(Color.BLUE);
+        graphics.drawLayers();
+
+        Bitmap bitmap = graphics.getFrameBuffer();
+        assertEquals(Color.GREEN, bitmap.getPixel(4, 8));
+        assertEquals(Color.RED, bitmap.getPixel(12, 8));
+
+        front.setVisible(false);
+        graphics.clear(Color.BLUE);
+        graphics.drawLayers();
+        assertEquals(Color.RED, bitmap.getPixel(4, 8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRepeatedNames() {
+        Graphics graphics = new Graphics(16, 16);
+        graphics.addLayer("background", new RectRenderer(0, 0, 16, 16, Color.RED));
+        graphics.addLayer("background", new RectRenderer(0, 0, 16, 16, Color.GREEN));
+    }
+}
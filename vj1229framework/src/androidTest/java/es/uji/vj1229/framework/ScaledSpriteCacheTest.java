@@ -0,0 +1,63 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class ScaledSpriteCacheTest {
+    private static final int SPRITE_BYTES = 32 * 32 * 4;
+
+    private static SpriteSheet sheet(ScaledSpriteCache cache) {
+        SpriteSheet sheet = new SpriteSheet(Bitmap.createBitmap(64, 16, Bitmap.Config.ARGB_8888), 16, 16);
+        sheet.setScaledSpriteCache(cache);
+        return sheet;
+    }
+
+    @Test
+    public void reusesSprites() {
+        ScaledSpriteCache cache = new ScaledSpriteCache(10 * SPRITE_BYTES);
+        SpriteSheet sheet = sheet(cache);
+        Bitmap first = cache.get(sheet, 0, 1, 32, 32);
+        assertSame(first, cache.get(sheet, 0, 1, 32, 32));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictionKeepsRowUsable() {
+        ScaledSpriteCache cache = new ScaledSpriteCache(2 * SPRITE_BYTES);
+        Bitmap[] row = sheet(cache).getScaledRow(0, 4, 32, 32);
+        for (Bitmap bitmap : row)
+            assertFalse(bitmap.isRecycled());
+        assertEquals(2, cache.getEvictionCount());
+        assertEquals(2 * SPRITE_BYTES, cache.getSizeInBytes());
+    }
+
+    @Test
+    public void spritesBiggerThanTheBudgetAreNotKept() {
+        ScaledSpriteCache cache = new ScaledSpriteCache(SPRITE_BYTES / 2);
+        SpriteSheet sheet = sheet(cache);
+        Bitmap sprite = cache.get(sheet, 0, 0, 32, 32);
+        assertFalse(sprite.isRecycled());
+        assertEquals(32, sprite.getWidth());
+        assertEquals(0, cache.getSizeInBytes());
+        assertEquals(0, cache.getEvictionCount());
+    }
+
+    @Test
+    public void clearDoesNotRecycle() {
+        ScaledSpriteCache cache = new ScaledSpriteCache(10 * SPRITE_BYTES);
+        Bitmap sprite = cache.get(sheet(cache), 0, 0, 32, 32);
+        cache.clear();
+        assertFalse(sprite.isRecycled());
+        assertEquals(0, cache.getSizeInBytes());
+    }
+}
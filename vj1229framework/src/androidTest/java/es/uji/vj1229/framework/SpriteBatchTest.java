@@ -0,0 +1,139 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+@RunWith(AndroidJUnit4.class)
+public class SpriteBatchTest {
+    private static final float EPSILON = 1e-6f;
+
+    // Keeps the arguments of the calls to drawVertices instead of drawing
+    private static class VerticesCanvas extends Canvas {
+        final List<float[]> vertices = new ArrayList<>();
+        final List<float[]> textureCoordinates = new ArrayList<>();
+        final List<short[]> indices = new ArrayList<>();
+        final List<int[]> colors = new ArrayList<>();
+
+        VerticesCanvas() {
+            super(Bitmap.createBitmap(4, 4, Bitmap.Config.ARGB_8888));
+        }
+
+        @Override
+        public void drawVertices(VertexMode mode, int vertexCount, float[] verts, int vertOffset,
+                                 float[] texs, int texOffset, int[] colors, int colorOffset,
+                                 short[] indices, int indexOffset, int indexCount, Paint paint) {
+            this.vertices.add(copy(verts, vertOffset, vertexCount));
+            this.textureCoordinates.add(copy(texs, texOffset, vertexCount));
+            this.colors.add(colors == null ? null : copy(colors, colorOffset, vertexCount / 2));
+            short[] used = new short[indexCount];
+            System.arraycopy(indices, indexOffset, used, 0, indexCount);
+            this.indices.add(used);
+        }
+
+        private static float[] copy(float[] array, int offset, int length) {
+            float[] result = new float[length];
+            System.arraycopy(array, offset, result, 0, length);
+            return result;
+        }
+
+        private static int[] copy(int[] array, int offset, int length) {
+            int[] result = new int[length];
+            System.arraycopy(array, offset, result, 0, length);
+            return result;
+        }
+    }
+
+    private static Bitmap sheet() {
+        return Bitmap.createBitmap(64, 64, Bitmap.Config.ARGB_8888);
+    }
+
+    @Test
+    public void buildsTwoTrianglesPerSprite() {
+        SpriteBatch batch = new SpriteBatch(sheet(), 1);
+        batch.add(10, 20, 16, 32, 8, 4, 2, 1);
+        VerticesCanvas canvas = new VerticesCanvas();
+        batch.draw(canvas, new Paint());
+
+        assertEquals(1, canvas.vertices.size());
+        assertArrayEquals(new float[] {10, 20, 26, 20, 26, 28, 10, 28},
+                canvas.vertices.get(0), EPSILON);
+        assertArrayEquals(new float[] {16, 32, 24, 32, 24, 36, 16, 36},
+                canvas.textureCoordinates.get(0), EPSILON);
+        assertArrayEquals(new short[] {0, 1, 2, 0, 2, 3}, canvas.indices.get(0));
+        assertNull(canvas.colors.get(0));
+    }
+
+    @Test
+    public void passesColorsOnlyForTranslucentSprites() {
+        SpriteBatch batch = new SpriteBatch(sheet(), 1);
+        batch.add(0, 0, 0, 0, 8, 8, 1, 1);
+        batch.add(0, 0, 0, 0, 8, 8, 1, 0.5f);
+        VerticesCanvas canvas = new VerticesCanvas();
+        batch.draw(canvas, new Paint());
+
+        int[] colors = canvas.colors.get(0);
+        assertEquals(0xffffffff, colors[0]);
+        assertEquals(0x80ffffff, colors[4]);
+        assertEquals(0x80ffffff, colors[7]);
+        assertArrayEquals(new short[] {4, 5, 6, 4, 6, 7},
+                Arrays.copyOfRange(canvas.indices.get(0), 6, 12));
+    }
+
+    @Test
+    public void splitsBigBatches() {
+        int sprites = SpriteBatch.MAX_SPRITES_PER_CALL + 10;
+        SpriteBatch batch = new SpriteBatch(sheet(), 16);
+        for (int i = 0; i < sprites; i++)
+            batch.add(i, 0, 0, 0, 1, 1, 1, 1);
+        assertEquals(sprites, batch.getCount());
+        VerticesCanvas canvas = new VerticesCanvas();
+        batch.draw(canvas, new Paint());
+
+        assertEquals(2, canvas.vertices.size());
+        assertEquals(SpriteBatch.MAX_SPRITES_PER_CALL * 8, canvas.vertices.get(0).length);
+        assertEquals(SpriteBatch.MAX_SPRITES_PER_CALL * 6, canvas.indices.get(0).length);
+        assertEquals(10 * 8, canvas.vertices.get(1).length);
+        assertEquals(10 * 6, canvas.indices.get(1).length);
+        // The second call starts with the first sprite that did not fit in the first one
+        assertEquals(SpriteBatch.MAX_SPRITES_PER_CALL, canvas.vertices.get(1)[0], EPSILON);
+        assertArrayEquals(new short[] {0, 1, 2, 0, 2, 3},
+                Arrays.copyOf(canvas.indices.get(1), 6));
+    }
+
+    @Test
+    public void recordsACopyOfTheBatch() {
+        Bitmap sheet = sheet();
+        sheet.eraseColor(Color.RED);
+        SpriteBatch batch = new SpriteBatch(sheet, 1);
+        batch.add(0, 0, 0, 0, 8, 8, 1, 1);
+
+        Graphics graphics = new Graphics(16, 16);
+        DrawCommandBuffer buffer = new DrawCommandBuffer();
+        graphics.startRecording(buffer);
+        graphics.drawBatch(batch);
+        graphics.stopRecording();
+        batch.clear();
+        batch.add(8, 8, 0, 0, 8, 8, 1, 1);
+
+        Bitmap target = Bitmap.createBitmap(16, 16, Bitmap.Config.ARGB_8888);
+        buffer.replay(new Canvas(target), new Paint(), new Rect(), new Rect());
+        assertEquals(Color.RED, target.getPixel(4, 4));
+        assertEquals(0, target.getPixel(12, 12));
+    }
+}
@@ -0,0 +1,53 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class TiledRenderingTest {
+    @Test
+    public void drawsAllTheBands() {
+        Graphics graphics = new Graphics(16, 16);
+        graphics.setTiledRendering(4);
+        graphics.clear(0x0000ff);
+        graphics.drawRect(0, 0, 16, 16, Color.RED);
+        Bitmap bitmap = graphics.getFrameBuffer();
+        for (int y = 0; y < 15; y++)
+            assertEquals(Color.RED, bitmap.getPixel(8, y));
+    }
+
+    @Test
+    public void keepsDrawingsBeforeRecording() {
+        Graphics graphics = new Graphics(16, 16);
+        graphics.setTiledRendering(2);
+        graphics.clear(0x0000ff);
+        graphics.drawRect(0, 0, 8, 16, Color.RED);
+
+        DrawCommandBuffer buffer = new DrawCommandBuffer();
+        graphics.startRecording(buffer);
+        graphics.drawRect(8, 0, 8, 16, Color.GREEN);
+        graphics.stopRecording();
+
+        Bitmap bitmap = graphics.getFrameBuffer();
+        assertEquals(Color.RED, bitmap.getPixel(2, 2));
+        assertEquals(Color.RED, bitmap.getPixel(2, 12));
+        assertEquals(Color.BLUE, bitmap.getPixel(12, 2));
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void disablingExecutesPendingOperations() {
+        Graphics graphics = new Graphics(16, 16);
+        graphics.setTiledRendering(2);
+        graphics.clear(0x00ff00);
+        graphics.disableTiledRendering();
+        assertEquals(Color.GREEN, graphics.getFrameBuffer().getPixel(4, 12));
+    }
+}
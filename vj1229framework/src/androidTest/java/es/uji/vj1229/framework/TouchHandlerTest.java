@@ -0,0 +1,127 @@
+package es.uji.vj1229.framework;
+
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TouchHandlerTest {
+    private View view;
+    private TouchHandler handler;
+    private long downTime;
+
+    @Before
+    public void setUp() {
+        view = new View(InstrumentationRegistry.getInstrumentation().getTargetContext());
+        handler = new TouchHandler(view);
+        downTime = SystemClock.uptimeMillis();
+    }
+
+    private MotionEvent event(int action, long time, float[][] positions) {
+        int n = positions.length;
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[n];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[n];
+        for (int i = 0; i < n; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = i;
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = positions[i][0];
+            coords[i].y = positions[i][1];
+        }
+        return MotionEvent.obtain(downTime, time, action, n, properties, coords,
+                0, 0, 1, 1, 0, 0, 0, 0);
+    }
+
+    private void touch(MotionEvent event) {
+        handler.onTouch(view, event);
+        event.recycle();
+    }
+
+    private TouchEventBatch drain() {
+        TouchEventBatch batch = new TouchEventBatch(TouchHandler.DEFAULT_QUEUE_CAPACITY);
+        handler.drainTouchEvents(batch);
+        return batch;
+    }
+
+    @Test
+    public void reportsThePositionOfEachFinger() {
+        touch(event(MotionEvent.ACTION_DOWN, downTime, new float[][] {{10, 20}}));
+        touch(event(MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+                downTime + 1, new float[][] {{10, 20}, {30, 40}}));
+        touch(event(MotionEvent.ACTION_MOVE, downTime + 2, new float[][] {{11, 21}, {31, 41}}));
+
+        TouchEventBatch batch = drain();
+        assertEquals(4, batch.count);
+        assertEquals(TouchEventQueue.TOUCH_DOWN, batch.type[1]);
+        assertEquals(1, batch.pointer[1]);
+        assertEquals(30, batch.x[1]);
+        assertEquals(40, batch.y[1]);
+        assertEquals(0, batch.pointer[2]);
+        assertEquals(11, batch.x[2]);
+        assertEquals(1, batch.pointer[3]);
+        assertEquals(31, batch.x[3]);
+        assertEquals(41, batch.y[3]);
+        assertEquals(31, handler.getTouchX(1));
+        assertEquals(41, handler.getTouchY(1));
+    }
+
+    @Test
+    public void releasesOnlyTheLiftedFinger() {
+        touch(event(MotionEvent.ACTION_DOWN, downTime, new float[][] {{10, 20}}));
+        touch(event(MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+                downTime + 1, new float[][] {{10, 20}, {30, 40}}));
+        touch(event(MotionEvent.ACTION_POINTER_UP | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+                downTime + 2, new float[][] {{10, 20}, {30, 40}}));
+        assertTrue(handler.isTouchDown(0));
+        assertFalse(handler.isTouchDown(1));
+    }
+
+    private MotionEvent moveWithHistory() {
+        MotionEvent move = event(MotionEvent.ACTION_MOVE, downTime + 1, new float[][] {{1, 0}});
+        for (int i = 2; i <= 3; i++) {
+            MotionEvent.PointerCoords coords = new MotionEvent.PointerCoords();
+            coords.x = i;
+            move.addBatch(downTime + i, new MotionEvent.PointerCoords[] {coords}, 0);
+        }
+        return move;
+    }
+
+    @Test
+    public void reportsHistoricalSamplesWhenRequested() {
+        touch(moveWithHistory());
+        assertEquals(1, drain().count);
+
+        handler.setHistoricalSamples(true);
+        touch(moveWithHistory());
+        TouchEventBatch batch = drain();
+        assertEquals(3, batch.count);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(TouchEventQueue.TOUCH_DRAGGED, batch.type[i]);
+            assertEquals(i + 1, batch.x[i]);
+            assertEquals(downTime + i + 1, batch.time[i]);
+        }
+    }
+
+    @Test
+    public void coalescesHistoricalSamples() {
+        handler.setHistoricalSamples(true);
+        handler.setDragCoalescing(true);
+        touch(moveWithHistory());
+        TouchEventBatch batch = drain();
+        assertEquals(1, batch.count);
+        assertEquals(3, batch.x[0]);
+        assertEquals(downTime + 3, batch.time[0]);
+    }
+}
@@ -4,7 +4,7 @@ import android.graphics.Bitmap;
 
 /**
  * This class stores the frames corresponding to an animated bitmap.
- * Each frame is a {@link Bitmap}. The animation can be configured to
+ * Each frame is a {@link Bitmap} or a {@link SpriteRegion}. The animation can be configured to
  * keep looping around or to end in the a period indicated in the constructor.
  *
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
@@ -16,6 +16,7 @@ import android.graphics.Bitmap;
  */
 public class AnimatedBitmap {
     private final Bitmap[] frames;
+    private final SpriteRegion[] regions;
     private final float frameDuration;
     private final float totalTime;
     private float currentTime;
@@ -42,9 +43,37 @@ public class AnimatedBitmap {
         this.totalTime = totalTime;
         this.looping = looping;
         this.frames = frames;
+        this.regions = new SpriteRegion[frames.length];
+        for (int i = 0; i < frames.length; i++)
+            regions[i] = new SpriteRegion(frames[i]);
         frameDuration = totalTime / frames.length;
     }
 
+    /**
+     * Constructor for an AnimatedBitmap in looping mode whose frames are regions of
+     * a {@link Bitmap}, for instance obtained with {@link SpriteSheet#getRegionRow}.
+     *
+     * @param totalTime the total time (in seconds) needed for the whole animation.
+     * @param regions the frames.
+     */
+    public AnimatedBitmap(float totalTime, SpriteRegion ... regions) {
+        this(totalTime, true, regions);
+    }
+
+    /**
+     * General constructor for an AnimatedBitmap whose frames are regions of a {@link Bitmap}.
+     * @param totalTime the total time (in seconds) needed for the whole animation.
+     * @param looping if true, the animation will keep looping with a period equal to totalTime
+     * @param regions the frames.
+     */
+    public AnimatedBitmap(float totalTime, boolean looping, SpriteRegion ... regions) {
+        this.totalTime = totalTime;
+        this.looping = looping;
+        this.frames = null;
+        this.regions = regions;
+        frameDuration = totalTime / regions.length;
+    }
+
     /**
      * Update the state of the animation so that {@link AnimatedBitmap#getCurrentFrame()}
      * returns the correct frame.
@@ -52,21 +81,29 @@ public class AnimatedBitmap {
      * @param deltaTime time elapsed (in seconds) since the last call.
      */
     public void onUpdate(float deltaTime) {
-        currentTime += deltaTime;
-        int nFrames = (int) (currentTime / frameDuration);
-        if (looping)
-            currentIndex = nFrames % frames.length;
-        else
-            currentIndex = Math.min(nFrames, frames.length - 1);
+        currentTime = AnimationTiming.advance(currentTime, deltaTime, totalTime, looping);
+        currentIndex = AnimationTiming.frameIndex(currentTime, frameDuration, regions.length, looping);
     }
 
     /**
      * @return The current frame according to the time elapsed.
+     * @throws IllegalStateException if the frames are {@link SpriteRegion}s, use
+     * {@link #getCurrentRegion()} instead.
      */
     public Bitmap getCurrentFrame() {
+        if (frames == null)
+            throw new IllegalStateException("The frames of this animation are regions, use getCurrentRegion");
         return frames[currentIndex];
     }
 
+    /**
+     * @return The current frame according to the time elapsed as a {@link SpriteRegion}.
+     * It can be used whatever the type of the frames.
+     */
+    public SpriteRegion getCurrentRegion() {
+        return regions[currentIndex];
+    }
+
     /**
      * @return True when the bitmap does not loop and the current time
      * is larger than the total time
@@ -85,9 +122,12 @@ public class AnimatedBitmap {
     }
 
     /**
-     * Call {@link Bitmap#recycle()} on each of the frames.
+     * Call {@link Bitmap#recycle()} on each of the frames. If the frames are
+     * {@link SpriteRegion}s, nothing is done, since their {@link Bitmap} is shared.
      */
     public void recycle() {
+        if (frames == null)
+            return;
         for (Bitmap frame: frames)
             frame.recycle();
     }
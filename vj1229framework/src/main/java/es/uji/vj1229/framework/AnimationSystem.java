@@ -0,0 +1,249 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Keeps many animations running at the same time.</p>
+ * <p>The animations are defined once as clips with {@link #addClip}. Then, each animated
+ * object is an instance of a clip, created with {@link #addInstance(int)}. The state of the
+ * instances (their clip, time, current frame and flags) is kept in arrays of primitive types and
+ * all of them advance with a single call to {@link #update(float)}, so thousands of instances
+ * cost a loop over a few arrays instead of thousands of {@link AnimatedBitmap}s. The time
+ * of the looping instances wraps around, so it does not lose precision in long sessions.</p>
+ * <p>The current frame of an instance is obtained with {@link #getRegion(int)} and can be
+ * drawn with {@link Graphics#drawRegion} or added to a {@link SpriteBatch}. The identifiers of
+ * the removed instances are reused.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class AnimationSystem {
+    private static final int ACTIVE = 1;
+    private static final int PAUSED = 2;
+    private static final int ENDED = 4;
+
+    private SpriteRegion[][] clipFrames = new SpriteRegion[8][];
+    private float[] clipTotalTime = new float[8];
+    private float[] clipFrameDuration = new float[8];
+    private boolean[] clipLooping = new boolean[8];
+    private int clips;
+
+    private int[] clip;
+    private float[] time;
+    private int[] index;
+    private int[] flags;
+    private int instances;
+    private int[] freeIds;
+    private int freeCount;
+
+    /**
+     * Constructor.
+     * @param capacity the initial number of instances. It grows if needed.
+     */
+    public AnimationSystem(int capacity) {
+        capacity = Math.max(capacity, 1);
+        clip = new int[capacity];
+        time = new float[capacity];
+        index = new int[capacity];
+        flags = new int[capacity];
+        freeIds = new int[capacity];
+    }
+
+    /**
+     * Define a clip.
+     * @param totalTime the total time (in seconds) of the clip.
+     * @param looping if true, the clip starts again after its end.
+     * @param frames the frames of the clip.
+     * @return the identifier of the clip.
+     */
+    public int addClip(float totalTime, boolean looping, SpriteRegion... frames) {
+        if (frames.length == 0)
+            throw new IllegalArgumentException("A clip needs at least one frame");
+        if (totalTime <= 0)
+            throw new IllegalArgumentException("The total time must be positive");
+        if (clips == clipFrames.length) {
+            int size = clips * 2;
+            SpriteRegion[][] newFrames = new SpriteRegion[size][];
+            System.arraycopy(clipFrames, 0, newFrames, 0, clips);
+            clipFrames = newFrames;
+            clipTotalTime = copyOf(clipTotalTime, size);
+            clipFrameDuration = copyOf(clipFrameDuration, size);
+            boolean[] newLooping = new boolean[size];
+            System.arraycopy(clipLooping, 0, newLooping, 0, clips);
+            clipLooping = newLooping;
+        }
+        clipFrames[clips] = frames;
+        clipTotalTime[clips] = totalTime;
+        clipFrameDuration[clips] = totalTime / frames.length;
+        clipLooping[clips] = looping;
+        return clips++;
+    }
+
+    /**
+     * @return the number of clips defined.
+     */
+    public int getClipCount() {
+        return clips;
+    }
+
+    /**
+     * Create an instance of a clip, starting at its beginning.
+     * @param clipId the identifier of the clip.
+     * @return the identifier of the instance.
+     */
+    public int addInstance(int clipId) {
+        checkClip(clipId);
+        int id;
+        if (freeCount > 0)
+            id = freeIds[--freeCount];
+        else {
+            if (instances == clip.length)
+                growInstances();
+            id = instances++;
+        }
+        flags[id] = ACTIVE;
+        play(id, clipId);
+        return id;
+    }
+
+    /**
+     * Remove an instance. Its identifier can be returned by a later call to
+     * {@link #addInstance(int)}.
+     * @param id the identifier of the instance.
+     */
+    public void removeInstance(int id) {
+        checkInstance(id);
+        flags[id] = 0;
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * Make an instance play a clip from its beginning.
+     * @param id the identifier of the instance.
+     * @param clipId the identifier of the clip.
+     */
+    public void play(int id, int clipId) {
+        checkInstance(id);
+        checkClip(clipId);
+        clip[id] = clipId;
+        time[id] = 0;
+        index[id] = 0;
+        flags[id] &= ~ENDED;
+    }
+
+    /**
+     * Pause or resume an instance.
+     * @param id the identifier of the instance.
+     * @param paused {@code true} to pause it.
+     */
+    public void setPaused(int id, boolean paused) {
+        checkInstance(id);
+        if (paused)
+            flags[id] |= PAUSED;
+        else
+            flags[id] &= ~PAUSED;
+    }
+
+    /**
+     * Advance all the instances that are not paused.
+     * @param deltaTime time elapsed (in seconds) since the last call.
+     */
+    public void update(float deltaTime) {
+        for (int id = 0; id < instances; id++) {
+            if ((flags[id] & (ACTIVE | PAUSED | ENDED)) != ACTIVE)
+                continue;
+            int c = clip[id];
+            boolean looping = clipLooping[c];
+            float t = AnimationTiming.advance(time[id], deltaTime, clipTotalTime[c], looping);
+            time[id] = t;
+            index[id] = AnimationTiming.frameIndex(t, clipFrameDuration[c], clipFrames[c].length, looping);
+            if (!looping && t >= clipTotalTime[c])
+                flags[id] |= ENDED;
+        }
+    }
+
+    /**
+     * @param id the identifier of the instance.
+     * @return the current frame of the instance.
+     */
+    public SpriteRegion getRegion(int id) {
+        checkInstance(id);
+        return clipFrames[clip[id]][index[id]];
+    }
+
+    /**
+     * @param id the identifier of the instance.
+     * @return the index of the current frame of the instance in its clip.
+     */
+    public int getFrameIndex(int id) {
+        checkInstance(id);
+        return index[id];
+    }
+
+    /**
+     * @param id the identifier of the instance.
+     * @return the time (in seconds) since the beginning of the current loop of the clip.
+     */
+    public float getTime(int id) {
+        checkInstance(id);
+        return time[id];
+    }
+
+    /**
+     * @param id the identifier of the instance.
+     * @return the identifier of the clip of the instance.
+     */
+    public int getClip(int id) {
+        checkInstance(id);
+        return clip[id];
+    }
+
+    /**
+     * @param id the identifier of the instance.
+     * @return {@code true} if the clip of the instance does not loop and has reached its end.
+     */
+    public boolean isEnded(int id) {
+        checkInstance(id);
+        return (flags[id] & ENDED) != 0;
+    }
+
+    /**
+     * @return the number of instances.
+     */
+    public int getInstanceCount() {
+        return instances - freeCount;
+    }
+
+    private void checkClip(int clipId) {
+        if (clipId < 0 || clipId >= clips)
+            throw new IllegalArgumentException("There is no clip " + clipId);
+    }
+
+    private void checkInstance(int id) {
+        if (id < 0 || id >= instances || (flags[id] & ACTIVE) == 0)
+            throw new IllegalArgumentException("There is no instance " + id);
+    }
+
+    private void growInstances() {
+        int size = clip.length * 2;
+        clip = copyOf(clip, size);
+        time = copyOf(time, size);
+        index = copyOf(index, size);
+        flags = copyOf(flags, size);
+        freeIds = copyOf(freeIds, size);
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] newArray = new int[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static float[] copyOf(float[] array, int length) {
+        float[] newArray = new float[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
@@ -0,0 +1,51 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>The computations of time used by the animations.</p>
+ * <p>Both {@link AnimatedBitmap} and {@link AnimationSystem} keep the time of each
+ * animation and use {@link #advance} to move it forward each update and {@link #frameIndex}
+ * to choose the frame that is drawn, so a clip behaves the same in either of them.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public final class AnimationTiming {
+    private AnimationTiming() {
+    }
+
+    /**
+     * Advance the time of an animation. If it loops, the time wraps around at the end, so
+     * that it does not grow without limit and lose precision; otherwise, it stops at the end.
+     * @param time the current time.
+     * @param deltaTime the time elapsed.
+     * @param totalTime the duration of the animation.
+     * @param looping if true, the animation starts again after the end.
+     * @return the new time, between 0 and {@code totalTime}.
+     */
+    public static float advance(float time, float deltaTime, float totalTime, boolean looping) {
+        time += deltaTime;
+        if (time < totalTime)
+            return time;
+        return looping ? time % totalTime : totalTime;
+    }
+
+    /**
+     * Return the frame of an animation that corresponds to a time.
+     * @param time the time elapsed since the beginning of the animation.
+     * @param frameDuration the duration of each frame.
+     * @param nFrames the number of frames.
+     * @param looping if true, the animation starts again after the last frame, otherwise
+     *                it stays in the last frame.
+     * @return the index of the frame.
+     */
+    public static int frameIndex(float time, float frameDuration, int nFrames, boolean looping) {
+        int frame = (int) (time / frameDuration);
+        if (looping)
+            return frame % nFrames;
+        return Math.min(frame, nFrames - 1);
+    }
+}
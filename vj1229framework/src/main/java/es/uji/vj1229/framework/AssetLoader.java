@@ -0,0 +1,391 @@
+package es.uji.vj1229.framework;
+
+import android.content.Context;
+import android.content.res.AssetManager;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * <p>Loads the assets of a game in background threads.</p>
+ * <p>Decoding bitmaps and building {@link SpriteSheet}s or {@link AnimatedBitmap}s in the
+ * thread of the game stalls the frames. The loader decodes the bitmaps in its own threads and
+ * returns a {@link Future} for each of them. Any other work can be done in those threads with
+ * {@link #submit(Callable, Callback)}. Meanwhile, the game can draw a loading screen using
+ * {@link #getProgress()}.</p>
+ * <p>The {@link Callback}s are not called from the background threads: they are called by
+ * {@link #dispatchCallbacks()}, which is meant to be called from
+ * {@link IEventProcessor#onUpdate}, so that the assets reach the game in its own thread.</p>
+ * <p>The bitmaps are decoded without density scaling, reusing the memory of the bitmaps given
+ * to {@link #reuseBitmap(Bitmap)} when they are big enough (see
+ * {@link BitmapFactory.Options#inBitmap}). If a size is requested, they are subsampled with
+ * {@link BitmapFactory.Options#inSampleSize} while they are at least twice as big and then
+ * scaled with filtering to that size, so the game does not need to scale them.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class AssetLoader {
+    /**
+     * The interface for receiving the result of a task.
+     * @param <T> the type of the result
+     */
+    public interface Callback<T> {
+        /**
+         * Called when the task has finished successfully.
+         * @param result the result of the task.
+         */
+        void onLoaded(T result);
+
+        /**
+         * Called when the task has failed. By default, it does nothing.
+         * @param exception the cause of the failure.
+         */
+        default void onError(Exception exception) {
+        }
+    }
+
+    private final Resources resources;
+    private final AssetManager assets;
+    private final ExecutorService executor;
+    private final ArrayDeque<Runnable> callbacks = new ArrayDeque<>();
+    private final List<Bitmap> reusableBitmaps = new ArrayList<>();
+    private int submitted, completed;
+    private volatile Runnable finishListener;
+
+    /**
+     * Constructor. The loader uses two background threads, or one in devices with less than
+     * three cores, so that a core is left for the game.
+     * @param context the {@link Context} used to access the resources and the assets.
+     */
+    public AssetLoader(Context context) {
+        this(context, Executors.newFixedThreadPool(
+                Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "AssetLoader");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }));
+    }
+
+    /**
+     * Constructor.
+     * @param context the {@link Context} used to access the resources and the assets.
+     * @param executor the {@link ExecutorService} that runs the tasks.
+     */
+    public AssetLoader(Context context, ExecutorService executor) {
+        this.resources = context.getResources();
+        this.assets = context.getAssets();
+        this.executor = executor;
+    }
+
+    /**
+     * Decode a bitmap from the resources.
+     * @param resId the identifier of the resource.
+     * @param reqWidth the width of the bitmap returned, or 0 to decode it whole.
+     * @param reqHeight the height of the bitmap returned, or 0 to decode it whole.
+     * @param config the configuration of the bitmap, for instance {@link Bitmap.Config#RGB_565}
+     *               for opaque backgrounds, or {@code null} for the default.
+     * @param callback the callback or {@code null}.
+     * @return the {@link Future} of the bitmap.
+     */
+    public Future<Bitmap> loadBitmap(int resId, int reqWidth, int reqHeight, Bitmap.Config config,
+                                     Callback<Bitmap> callback) {
+        return submit(() -> decode(null, resId, reqWidth, reqHeight, 0, 0, config), callback);
+    }
+
+    /**
+     * Decode a bitmap from the assets.
+     * @param path the path of the asset.
+     * @param reqWidth the width of the bitmap returned, or 0 to decode it whole.
+     * @param reqHeight the height of the bitmap returned, or 0 to decode it whole.
+     * @param config the configuration of the bitmap or {@code null} for the default.
+     * @param callback the callback or {@code null}.
+     * @return the {@link Future} of the bitmap.
+     */
+    public Future<Bitmap> loadBitmap(String path, int reqWidth, int reqHeight, Bitmap.Config config,
+                                     Callback<Bitmap> callback) {
+        return submit(() -> decode(path, 0, reqWidth, reqHeight, 0, 0, config), callback);
+    }
+
+    /**
+     * Decode a bitmap from the resources and build a {@link SpriteSheet} with it.
+     * @param resId the identifier of the resource.
+     * @param cellHeight the height of the cell of an individual sprite.
+     * @param cellWidth the width of the cell of an individual sprite.
+     * @param callback the callback or {@code null}.
+     * @return the {@link Future} of the sprite sheet.
+     */
+    public Future<SpriteSheet> loadSpriteSheet(int resId, int cellHeight, int cellWidth,
+                                               Callback<SpriteSheet> callback) {
+        return loadSpriteSheet(resId, cellHeight, cellWidth, 0, 0, null, callback);
+    }
+
+    /**
+     * Decode a bitmap from the resources, scale it so that its sprites have the size
+     * requested and build a {@link SpriteSheet} with it.
+     * @param resId the identifier of the resource.
+     * @param cellHeight the height of the cell of an individual sprite in the resource.
+     * @param cellWidth the width of the cell of an individual sprite in the resource.
+     * @param spriteHeight the height of the sprites in the sheet, or 0 to keep the size.
+     * @param spriteWidth the width of the sprites in the sheet, or 0 to keep the size.
+     * @param config the configuration of the bitmap or {@code null} for the default.
+     * @param callback the callback or {@code null}.
+     * @return the {@link Future} of the sprite sheet.
+     */
+    public Future<SpriteSheet> loadSpriteSheet(int resId, int cellHeight, int cellWidth,
+                                               int spriteHeight, int spriteWidth, Bitmap.Config config,
+                                               Callback<SpriteSheet> callback) {
+        boolean scaled = spriteHeight > 0 && spriteWidth > 0;
+        return submit(() -> new SpriteSheet(
+                decode(null, resId, spriteWidth, spriteHeight, cellWidth, cellHeight, config),
+                scaled ? spriteHeight : cellHeight, scaled ? spriteWidth : cellWidth), callback);
+    }
+
+    /**
+     * Run a task in the background threads. It is useful for preparing the assets, for
+     * instance scaling the sprites of a {@link SpriteSheet} or creating {@link AnimatedBitmap}s.
+     * @param task the task.
+     * @param callback the callback or {@code null}.
+     * @param <T> the type of the result.
+     * @return the {@link Future} of the result.
+     */
+    public <T> Future<T> submit(Callable<T> task, Callback<T> callback) {
+        synchronized (this) {
+            if (completed == submitted)
+                completed = submitted = 0;
+            submitted++;
+        }
+        return executor.submit(() -> {
+            try {
+                T result = task.call();
+                finished(callback == null ? null : () -> callback.onLoaded(result));
+                return result;
+            } catch (Exception e) {
+                finished(callback == null ? null : () -> callback.onError(e));
+                throw e;
+            }
+        });
+    }
+
+    private void finished(Runnable callback) {
+        synchronized (this) {
+            completed++;
+            if (callback != null)
+                callbacks.add(callback);
+        }
+        Runnable listener = finishListener;
+        if (listener != null)
+            listener.run();
+    }
+
+    /**
+     * Set an action run in the background threads each time a task finishes. With a
+     * {@link GameView} in {@link GameView.RenderMode#ON_DEMAND} mode, it should call
+     * {@link GameView#requestRender()}, so that the view wakes up and the game dispatches
+     * the callbacks. The {@link AssetLoader} of the {@link GameActivity} does it.
+     * @param finishListener the action or {@code null}.
+     */
+    public void setFinishListener(Runnable finishListener) {
+        this.finishListener = finishListener;
+    }
+
+    /**
+     * Call the {@link Callback}s of the tasks finished since the previous call. It should be
+     * called from the thread of the game, for instance in {@link IEventProcessor#onUpdate}.
+     */
+    public void dispatchCallbacks() {
+        while (true) {
+            Runnable callback;
+            synchronized (this) {
+                callback = callbacks.poll();
+            }
+            if (callback == null)
+                return;
+            callback.run();
+        }
+    }
+
+    /**
+     * @return the fraction (between 0 and 1) of the tasks finished since the loader was idle
+     * for the last time.
+     */
+    public synchronized float getProgress() {
+        return submitted == 0 ? 1 : (float) completed / submitted;
+    }
+
+    /**
+     * @return {@code true} if all the tasks have finished and their callbacks have been called.
+     */
+    public synchronized boolean isIdle() {
+        return completed == submitted && callbacks.isEmpty();
+    }
+
+    /**
+     * Offer a bitmap that is no longer used, so that its memory can be reused when decoding
+     * another one. It must be mutable, as those decoded by the loader.
+     * @param bitmap the bitmap.
+     */
+    public void reuseBitmap(Bitmap bitmap) {
+        if (bitmap.isMutable() && !bitmap.isRecycled()) {
+            synchronized (reusableBitmaps) {
+                reusableBitmaps.add(bitmap);
+            }
+        }
+    }
+
+    /**
+     * Stop the background threads. The tasks not started are discarded.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // If cellWidth and cellHeight are positive, reqWidth and reqHeight are the size of a cell
+    private Bitmap decode(String path, int resId, int reqWidth, int reqHeight,
+                          int cellWidth, int cellHeight, Bitmap.Config config) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decodeWith(path, resId, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0)
+            throw new IOException("Cannot decode " + (path != null ? path : "resource " + resId));
+        if (cellWidth > 0 && cellHeight > 0) {
+            reqWidth = scaledSize(options.outWidth, cellWidth, reqWidth);
+            reqHeight = scaledSize(options.outHeight, cellHeight, reqHeight);
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inScaled = false;
+        options.inMutable = true;
+        options.inSampleSize = sampleSize(options.outWidth, options.outHeight, reqWidth, reqHeight);
+        if (config != null)
+            options.inPreferredConfig = config;
+        int width = options.outWidth / options.inSampleSize;
+        int height = options.outHeight / options.inSampleSize;
+        Bitmap reusable = takeReusable(width * height * bytesPerPixel(options.inPreferredConfig));
+        options.inBitmap = reusable;
+
+        Bitmap bitmap = null;
+        try {
+            try {
+                bitmap = decodeWith(path, resId, options);
+            } catch (IllegalArgumentException e) { // The bitmap could not be reused
+                options.inBitmap = null;
+                bitmap = decodeWith(path, resId, options);
+            }
+        } finally {
+            if (reusable != null && bitmap != reusable)
+                reuseBitmap(reusable);
+        }
+        if (bitmap == null)
+            throw new IOException("Cannot decode " + (path != null ? path : "resource " + resId));
+        return scale(bitmap, reqWidth, reqHeight);
+    }
+
+    /**
+     * Scale a decoded bitmap with filtering. If it is scaled, the original is kept for reuse.
+     * @param bitmap the bitmap.
+     * @param reqWidth the width required, 0 to keep the bitmap.
+     * @param reqHeight the height required, 0 to keep the bitmap.
+     * @return a mutable bitmap with the size required, or the original one.
+     */
+    Bitmap scale(Bitmap bitmap, int reqWidth, int reqHeight) {
+        if (reqWidth <= 0 || reqHeight <= 0
+                || (bitmap.getWidth() == reqWidth && bitmap.getHeight() == reqHeight))
+            return bitmap;
+        Bitmap.Config config = bitmap.getConfig();
+        Bitmap scaled = Bitmap.createBitmap(reqWidth, reqHeight,
+                config != null ? config : Bitmap.Config.ARGB_8888);
+        scaled.setHasAlpha(bitmap.hasAlpha());
+        new Canvas(scaled).drawBitmap(bitmap, null, new Rect(0, 0, reqWidth, reqHeight),
+                new Paint(Paint.FILTER_BITMAP_FLAG));
+        reuseBitmap(bitmap);
+        return scaled;
+    }
+
+    /**
+     * Compute the size of a sprite sheet whose cells are scaled to a given size.
+     * @param size the size of the sheet.
+     * @param cellSize the size of the cells.
+     * @param reqCellSize the size required for the cells, 0 to keep them.
+     * @return the size of the scaled sheet, 0 if it is not scaled.
+     */
+    static int scaledSize(int size, int cellSize, int reqCellSize) {
+        if (reqCellSize <= 0)
+            return 0;
+        return Math.round((float) size * reqCellSize / cellSize);
+    }
+
+    private Bitmap decodeWith(String path, int resId, BitmapFactory.Options options) throws IOException {
+        if (path == null)
+            return BitmapFactory.decodeResource(resources, resId, options);
+        try (InputStream in = assets.open(path)) {
+            return BitmapFactory.decodeStream(in, null, options);
+        }
+    }
+
+    /**
+     * Compute the largest power of two that divides the dimensions of a bitmap keeping them
+     * at least as big as the ones required.
+     * @param width the width of the bitmap.
+     * @param height the height of the bitmap.
+     * @param reqWidth the required width, 0 if any width is valid.
+     * @param reqHeight the required height, 0 if any height is valid.
+     * @return the sample size.
+     */
+    static int sampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0)
+            return sampleSize;
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight)
+            sampleSize *= 2;
+        return sampleSize;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444)
+            return 2;
+        if (config == Bitmap.Config.ALPHA_8)
+            return 1;
+        return 4;
+    }
+
+    /**
+     * Take the smallest of the bitmaps offered with {@link #reuseBitmap(Bitmap)} that has
+     * at least the given size.
+     * @param bytes the size required.
+     * @return the bitmap or {@code null} if none is big enough.
+     */
+    Bitmap takeReusable(int bytes) {
+        synchronized (reusableBitmaps) {
+            int best = -1;
+            for (int i = 0; i < reusableBitmaps.size(); i++) {
+                Bitmap candidate = reusableBitmaps.get(i);
+                if (candidate.isRecycled())
+                    continue;
+                int size = candidate.getAllocationByteCount();
+                if (size >= bytes && (best < 0 || size < reusableBitmaps.get(best).getAllocationByteCount()))
+                    best = i;
+            }
+            return best < 0 ? null : reusableBitmaps.remove(best);
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Typeface;
+
+/**
+ * <p>A font whose characters have been drawn in advance in a {@link Bitmap}.</p>
+ * <p>The printable ASCII characters (from space to '~') of a {@link Typeface} are drawn once,
+ * with a given size and color, in a grid of cells of an atlas {@link Bitmap}. Then, the texts
+ * are drawn by copying the cells with {@link Graphics#drawText(BitmapFont, float, float, CharSequence)},
+ * {@link Graphics#drawInt} or {@link Graphics#drawFloat}, which is much cheaper than letting a
+ * {@link Paint} shape the text every frame and, in the case of numbers, does not need
+ * to create {@link String}s. The characters not in the font are drawn as '?'.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class BitmapFont {
+    private static final char FIRST_CHAR = ' ';
+    private static final char LAST_CHAR = '~';
+    private static final int N_CHARS = LAST_CHAR - FIRST_CHAR + 1;
+    private static final int COLUMNS = 16;
+    private static final int PADDING = 2;
+    // The limit of the values written without exponent, their digits fit in a long
+    private static final double MAX_FIXED = 1e18;
+
+    private final Bitmap atlas;
+    private final int cellWidth, cellHeight;
+    private final float[] advances = new float[N_CHARS];
+    private final float ascent, descent;
+
+    /**
+     * Constructor. It creates the atlas and draws the characters in it.
+     * @param typeface the {@link Typeface} of the characters.
+     * @param size the size of the text, as in {@link Paint#setTextSize(float)}.
+     * @param color the color of the text in ARGB format (32 bits).
+     */
+    public BitmapFont(Typeface typeface, float size, int color) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setTypeface(typeface);
+        paint.setTextSize(size);
+        paint.setColor(color);
+        paint.setTextAlign(Paint.Align.LEFT);
+
+        char[] chars = new char[N_CHARS];
+        float maxAdvance = 0;
+        for (int i = 0; i < N_CHARS; i++) {
+            chars[i] = (char) (FIRST_CHAR + i);
+            advances[i] = paint.measureText(chars, i, 1);
+            maxAdvance = Math.max(maxAdvance, advances[i]);
+        }
+        ascent = paint.ascent();
+        descent = paint.descent();
+        cellWidth = (int) Math.ceil(maxAdvance) + 2 * PADDING;
+        cellHeight = (int) Math.ceil(descent - ascent) + 2 * PADDING;
+
+        int rows = (N_CHARS + COLUMNS - 1) / COLUMNS;
+        atlas = Bitmap.createBitmap(cellWidth * COLUMNS, cellHeight * rows, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        for (int i = 0; i < N_CHARS; i++)
+            canvas.drawText(chars, i, 1, getCellLeft(i) + PADDING, getCellTop(i) + PADDING - ascent, paint);
+    }
+
+    int glyphIndex(char c) {
+        if (c < FIRST_CHAR || c > LAST_CHAR)
+            c = '?';
+        return c - FIRST_CHAR;
+    }
+
+    int getCellLeft(int glyph) {
+        return (glyph % COLUMNS) * cellWidth;
+    }
+
+    int getCellTop(int glyph) {
+        return (glyph / COLUMNS) * cellHeight;
+    }
+
+    float getAdvance(int glyph) {
+        return advances[glyph];
+    }
+
+    int getCellWidth() {
+        return cellWidth;
+    }
+
+    int getCellHeight() {
+        return cellHeight;
+    }
+
+    int getPadding() {
+        return PADDING;
+    }
+
+    /**
+     * @return the {@link Bitmap} with the characters.
+     */
+    public Bitmap getAtlas() {
+        return atlas;
+    }
+
+    /**
+     * @return the distance from the baseline to the top of the characters. It is negative,
+     * as in {@link Paint#ascent()}.
+     */
+    public float getAscent() {
+        return ascent;
+    }
+
+    /**
+     * @return the distance from the baseline to the bottom of the characters.
+     */
+    public float getDescent() {
+        return descent;
+    }
+
+    /**
+     * Return the width of a text drawn with this font.
+     * @param chars the characters of the text.
+     * @param start the position of the first character.
+     * @param length the number of characters.
+     * @return the width of the text.
+     */
+    public float measure(char[] chars, int start, int length) {
+        float width = 0;
+        for (int i = start; i < start + length; i++)
+            width += advances[glyphIndex(chars[i])];
+        return width;
+    }
+
+    /**
+     * Return the width of a text drawn with this font.
+     * @param text the text.
+     * @return the width of the text.
+     */
+    public float measure(CharSequence text) {
+        float width = 0;
+        for (int i = 0; i < text.length(); i++)
+            width += advances[glyphIndex(text.charAt(i))];
+        return width;
+    }
+
+    /**
+     * Write the decimal representation of an integer in a buffer.
+     * @param value the integer.
+     * @param buffer the buffer, it must have room for at least 11 characters.
+     * @return the number of characters written.
+     */
+    public static int formatInt(int value, char[] buffer) {
+        return formatLong(value, buffer, 0);
+    }
+
+    /**
+     * Write the decimal representation of a float with a fixed number of decimals in a buffer.
+     * The values whose absolute value is 10<sup>18</sup> or more are written in scientific
+     * notation, like {@code 1.50E20}.
+     * @param value the float.
+     * @param decimals the number of decimals, between 0 and 9.
+     * @param buffer the buffer, it must have room for at least 30 characters.
+     * @return the number of characters written.
+     */
+    public static int formatFloat(float value, int decimals, char[] buffer) {
+        if (Float.isNaN(value))
+            return copy("NaN", buffer);
+        if (Float.isInfinite(value))
+            return copy(value > 0 ? "Inf" : "-Inf", buffer);
+        decimals = Math.max(0, Math.min(decimals, 9));
+        double abs = Math.abs((double) value);
+        if (abs >= MAX_FIXED)
+            return formatScientific(value < 0, abs, decimals, buffer);
+        // The decimals that would overflow the long are zero, since those floats are integers
+        int exact = 0;
+        long scale = 1;
+        while (exact < decimals && abs * scale * 10 < MAX_FIXED) {
+            scale *= 10;
+            exact++;
+        }
+        long scaled = Math.round(abs * scale);
+        int n = 0;
+        if (value < 0 && scaled != 0)
+            buffer[n++] = '-';
+        n = formatLong(scaled / scale, buffer, n);
+        return formatFraction(scaled % scale, exact, decimals, buffer, n);
+    }
+
+    private static int formatScientific(boolean negative, double abs, int decimals, char[] buffer) {
+        long scale = 1;
+        for (int i = 0; i < decimals; i++)
+            scale *= 10;
+        int exponent = (int) Math.floor(Math.log10(abs));
+        long mantissa = Math.round(abs / Math.pow(10, exponent - decimals));
+        if (mantissa >= 10 * scale || mantissa < scale) {
+            exponent += mantissa < scale ? -1 : 1;
+            mantissa = Math.round(abs / Math.pow(10, exponent - decimals));
+        }
+        int n = 0;
+        if (negative)
+            buffer[n++] = '-';
+        n = formatLong(mantissa / scale, buffer, n);
+        n = formatFraction(mantissa % scale, decimals, decimals, buffer, n);
+        buffer[n++] = 'E';
+        return formatLong(exponent, buffer, n);
+    }
+
+    private static int formatFraction(long fraction, int digits, int decimals, char[] buffer, int n) {
+        if (decimals == 0)
+            return n;
+        buffer[n++] = '.';
+        for (int i = digits - 1; i >= 0; i--) {
+            buffer[n + i] = (char) ('0' + fraction % 10);
+            fraction /= 10;
+        }
+        for (int i = digits; i < decimals; i++)
+            buffer[n + i] = '0';
+        return n + decimals;
+    }
+
+    private static int formatLong(long value, char[] buffer, int start) {
+        int n = start;
+        if (value < 0) {
+            buffer[n++] = '-';
+            value = -value;
+        }
+        int first = n;
+        do {
+            buffer[n++] = (char) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        for (int i = first, j = n - 1; i < j; i++, j--) {
+            char c = buffer[i];
+            buffer[i] = buffer[j];
+            buffer[j] = c;
+        }
+        return n;
+    }
+
+    private static int copy(String s, char[] buffer) {
+        s.getChars(0, s.length(), buffer, 0);
+        return s.length();
+    }
+
+    /**
+     * Recycle the atlas. The font can not be used after this.
+     */
+    public void recycle() {
+        atlas.recycle();
+    }
+}
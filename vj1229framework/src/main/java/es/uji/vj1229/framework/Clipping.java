@@ -0,0 +1,90 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>The computations of the rectangles used by {@link Graphics} when drawing clipped
+ * bitmaps.</p>
+ * <p>The results are written in an array of eight integers: the left, top, right and bottom
+ * coordinates of the rectangle of the source bitmap (starting at {@link #SRC}) followed by
+ * those of the rectangle of the destination (starting at {@link #DST}). {@link Graphics}
+ * reuses one array and copies it into its own {@code Rect}s, so drawing a clipped bitmap
+ * creates no objects. The coordinates are truncated to integers.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public final class Clipping {
+    /**
+     * The position of the source rectangle in the results.
+     */
+    public static final int SRC = 0;
+    /**
+     * The position of the destination rectangle in the results.
+     */
+    public static final int DST = 4;
+    /**
+     * The size of the array of results.
+     */
+    public static final int SIZE = 8;
+
+    private Clipping() {
+    }
+
+    /**
+     * Compute the rectangles for drawing a bitmap clipped in the horizontal axis, as in
+     * {@link Graphics#drawBitmap(android.graphics.Bitmap, float, float, float, float)}.
+     * @param x the x coordinate of the upper left corner of the bitmap
+     * @param y the y coordinate of the upper left corner of the bitmap
+     * @param width the width of the bitmap
+     * @param height the height of the bitmap
+     * @param minX the minimum x coordinate of the image
+     * @param maxX the maximum x coordinate of the image
+     * @param out the array that receives the rectangles
+     */
+    public static void clipHorizontally(float x, float y, int width, int height,
+                                        float minX, float maxX, int[] out) {
+        int leftDst = (int) Math.max(minX, x),
+                rightDst = (int) Math.min(maxX, x + width - 1),
+                leftSrc = x >= minX ? 0 : (int) (minX - x),
+                rightSrc = leftSrc + rightDst - leftDst;
+        set(out, SRC, leftSrc, 0, rightSrc, height);
+        set(out, DST, leftDst, (int) y, rightDst, (int) y + height);
+    }
+
+    /**
+     * Compute the rectangles for drawing a portion of a bitmap clipped to the right and
+     * bottom borders of the target, as in
+     * {@link Graphics#drawBitmap(android.graphics.Bitmap, float, float, float, float, float, float)}.
+     * @param x the x coordinate of the position in the target
+     * @param y the y coordinate of the position in the target
+     * @param xb the x coordinate of the portion of the bitmap
+     * @param yb the y coordinate of the portion of the bitmap
+     * @param width the width of the portion of the bitmap
+     * @param height the height of the portion of the bitmap
+     * @param targetWidth the width of the target
+     * @param targetHeight the height of the target
+     * @param out the array that receives the rectangles
+     */
+    public static void clipToTarget(float x, float y, float xb, float yb, float width, float height,
+                                    int targetWidth, int targetHeight, int[] out) {
+        int xi = (int) x;
+        int yi = (int) y;
+        int xbi = (int) xb;
+        int ybi = (int) yb;
+
+        int w = Math.min(targetWidth - xi, (int) width);
+        int h = Math.min(targetHeight - yi, (int) height);
+        set(out, SRC, xbi, ybi, xbi + w, ybi + h);
+        set(out, DST, xi, yi, xi + w, yi + h);
+    }
+
+    private static void set(int[] out, int offset, int left, int top, int right, int bottom) {
+        out[offset] = left;
+        out[offset + 1] = top;
+        out[offset + 2] = right;
+        out[offset + 3] = bottom;
+    }
+}
@@ -0,0 +1,186 @@
+package es.uji.vj1229.framework;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>A thread safe version of {@link Pool}.</p>
+ * <p>The free objects are distributed among several lists (stripes), each one protected
+ * by its own lock. Each thread starts using the stripe that corresponds to its identifier
+ * and only looks in the others when its stripe is empty or full, so threads rarely compete
+ * for the same lock. The pool keeps the same statistics as {@link Pool}.</p>
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @param <T> the type of the objects in the pool
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class ConcurrentPool<T> {
+    private static class Stripe {
+        final Object[] objects;
+        int count;
+
+        Stripe(int capacity) {
+            objects = new Object[capacity];
+        }
+    }
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final Pool.PoolObjectFactory<T> factory;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong discards = new AtomicLong();
+    private final AtomicInteger inUse = new AtomicInteger();
+    private final AtomicInteger highWaterMark = new AtomicInteger();
+
+    /**
+     * The constructor of the pool. The number of stripes depends on the number of processors.
+     * @param factory the factory of new objects
+     * @param maxSize the maximum number of element kept in the pool
+     */
+    public ConcurrentPool(Pool.PoolObjectFactory<T> factory, int maxSize) {
+        this(factory, maxSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The constructor of the pool.
+     * @param factory the factory of new objects
+     * @param maxSize the maximum number of element kept in the pool
+     * @param stripes the number of stripes, it is rounded up to a power of two
+     */
+    public ConcurrentPool(Pool.PoolObjectFactory<T> factory, int maxSize, int stripes) {
+        int n = Integer.highestOneBit(Math.max(1, stripes));
+        if (n < stripes)
+            n <<= 1;
+        this.factory = factory;
+        this.mask = n - 1;
+        this.stripes = new Stripe[n];
+        // The remainder is spread over the first stripes, so the total is maxSize
+        for (int i = 0; i < n; i++)
+            this.stripes[i] = new Stripe(maxSize / n + (i < maxSize % n ? 1 : 0));
+    }
+
+    private int home() {
+        return (int) Thread.currentThread().getId() & mask;
+    }
+
+    /**
+     * Return an object from the pool or create a new one if all the stripes are empty.
+     * @return The requested object
+     */
+    @SuppressWarnings("unchecked")
+    public T newObject() {
+        int home = home();
+        for (int i = 0; i <= mask; i++) {
+            Stripe stripe = stripes[(home + i) & mask];
+            synchronized (stripe) {
+                if (stripe.count > 0) {
+                    T object = (T) stripe.objects[--stripe.count];
+                    stripe.objects[stripe.count] = null;
+                    hits.incrementAndGet();
+                    markInUse();
+                    return object;
+                }
+            }
+        }
+        misses.incrementAndGet();
+        markInUse();
+        return factory.createObject();
+    }
+
+    private void markInUse() {
+        int used = inUse.incrementAndGet();
+        int mark = highWaterMark.get();
+        while (used > mark && !highWaterMark.compareAndSet(mark, used))
+            mark = highWaterMark.get();
+    }
+
+    /**
+     * Free an object for subsequent uses
+     * @param object the object to be freed
+     */
+    public void free(T object) {
+        inUse.decrementAndGet();
+        if (!store(object, home()))
+            discards.incrementAndGet();
+    }
+
+    private boolean store(T object, int home) {
+        for (int i = 0; i <= mask; i++) {
+            Stripe stripe = stripes[(home + i) & mask];
+            synchronized (stripe) {
+                if (stripe.count < stripe.objects.length) {
+                    stripe.objects[stripe.count++] = object;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Create objects in advance so that there are at least {@code count} free objects,
+     * without exceeding the maximum size of the pool. The objects are distributed among
+     * the stripes.
+     * @param count the desired number of free objects
+     */
+    public void prewarm(int count) {
+        for (int created = getFreeCount(), stripe = 0; created < count; created++, stripe++)
+            if (!store(factory.createObject(), stripe & mask))
+                return;
+    }
+
+    /**
+     * @return the number of free objects in all the stripes
+     */
+    public int getFreeCount() {
+        int count = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                count += stripe.count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of calls to {@link #newObject()} served from the free objects
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of calls to {@link #newObject()} that had to create an object
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of objects not kept by {@link #free} because the pool was full
+     */
+    public long getDiscards() {
+        return discards.get();
+    }
+
+    /**
+     * @return the maximum number of objects obtained and not yet freed at the same time
+     */
+    public int getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    /**
+     * Set all the statistics to zero. The objects currently in use are still counted.
+     */
+    public void resetStatistics() {
+        hits.set(0);
+        misses.set(0);
+        discards.set(0);
+        highWaterMark.set(inUse.get());
+    }
+}
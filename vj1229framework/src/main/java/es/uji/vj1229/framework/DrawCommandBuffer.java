@@ -0,0 +1,313 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.Typeface;
+import android.graphics.drawable.Drawable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>A list of drawing commands that can be recorded in one thread and replayed
+ * in another.</p>
+ * <p>The commands are normally recorded by a {@link Graphics} between calls to
+ * {@link Graphics#startRecording(DrawCommandBuffer)} and {@link Graphics#stopRecording()}
+ * and replayed over a {@link Canvas} with {@link #replay}. The parameters of the commands
+ * are stored in arrays of primitive types that are reused after a call to {@link #reset()},
+ * so that recording does not create objects once the arrays have grown to the size
+ * of a typical frame. The objects referenced by the commands ({@link Bitmap}s, texts, ...)
+ * are not copied, so they must not change until the buffer is replayed. The only exception are
+ * the {@link SpriteBatch}es, that are copied into batches owned by the buffer.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class DrawCommandBuffer {
+    private static final int CLEAR = 0;
+    private static final int LINE = 1;
+    private static final int RECT = 2;
+    private static final int CIRCLE = 3;
+    private static final int BITMAP = 4;
+    private static final int BITMAP_RECT = 5;
+    private static final int TEXT = 6;
+    private static final int DRAWABLE = 7;
+    private static final int BATCH = 8;
+
+    private static final Paint.Align[] ALIGNS = Paint.Align.values();
+
+    private int width, height;
+    private int[] ops = new int[64];
+    private int opCount;
+    private int[] ints = new int[256];
+    private int intCount;
+    private float[] floats = new float[256];
+    private int floatCount;
+    private Object[] refs = new Object[64];
+    private int refCount;
+    private final List<SpriteBatch> batches = new ArrayList<>();
+    private int batchCount;
+    private boolean hasDrawables;
+
+    /**
+     * Empty the buffer and set the dimensions of the area in which the commands will draw.
+     * @param width the width of the drawing area.
+     * @param height the height of the drawing area.
+     */
+    public void begin(int width, int height) {
+        reset();
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Empty the buffer. The references to the objects used by the commands are released.
+     */
+    public void reset() {
+        opCount = intCount = floatCount = 0;
+        for (int i = 0; i < refCount; i++)
+            refs[i] = null;
+        refCount = 0;
+        batchCount = 0;
+        hasDrawables = false;
+    }
+
+    /**
+     * @return the width of the drawing area set in {@link #begin(int, int)}.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the drawing area set in {@link #begin(int, int)}.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return {@code true} if no commands have been recorded since the last reset.
+     */
+    public boolean isEmpty() {
+        return opCount == 0;
+    }
+
+    /**
+     * @return the number of commands recorded.
+     */
+    public int size() {
+        return opCount;
+    }
+
+    /**
+     * @return {@code true} if the buffer can be replayed by several threads at the same time
+     * over different {@link Canvas}es. It is not possible when a {@link Drawable} was recorded,
+     * since its bounds are changed when drawing it.
+     */
+    boolean isConcurrentReplaySafe() {
+        return !hasDrawables;
+    }
+
+    void clear(int color) {
+        addOp(CLEAR);
+        addInt(color);
+    }
+
+    void line(float x1, float y1, float x2, float y2, float width, int color) {
+        addOp(LINE);
+        addFloats(x1, y1, x2, y2);
+        addFloat(width);
+        addInt(color);
+    }
+
+    void rect(float left, float top, float right, float bottom, int color) {
+        addOp(RECT);
+        addFloats(left, top, right, bottom);
+        addInt(color);
+    }
+
+    void circle(float x, float y, float r, int color) {
+        addOp(CIRCLE);
+        addFloats(x, y, r, 0);
+        addInt(color);
+    }
+
+    void bitmap(Bitmap bitmap, float x, float y) {
+        addOp(BITMAP);
+        addRef(bitmap);
+        addFloat(x);
+        addFloat(y);
+    }
+
+    void bitmap(Bitmap bitmap, Rect src, Rect dst) {
+        if (src == null)
+            bitmap(bitmap, false, 0, 0, 0, 0, dst.left, dst.top, dst.right, dst.bottom);
+        else
+            bitmap(bitmap, true, src.left, src.top, src.right, src.bottom,
+                    dst.left, dst.top, dst.right, dst.bottom);
+    }
+
+    void bitmap(Bitmap bitmap, boolean hasSrc, int srcLeft, int srcTop, int srcRight, int srcBottom,
+                int dstLeft, int dstTop, int dstRight, int dstBottom) {
+        addOp(BITMAP_RECT);
+        addRef(bitmap);
+        addInt(hasSrc ? 1 : 0);
+        addInts(srcLeft, srcTop, srcRight, srcBottom);
+        addInts(dstLeft, dstTop, dstRight, dstBottom);
+    }
+
+    void text(String s, float x, float y, int color, Paint paint) {
+        addOp(TEXT);
+        addRef(s);
+        addRef(paint.getTypeface());
+        addFloat(x);
+        addFloat(y);
+        addFloat(paint.getTextSize());
+        addInt(color);
+        addInt(paint.getTextAlign().ordinal());
+    }
+
+    void drawable(Drawable drawable, int left, int top, int right, int bottom) {
+        addOp(DRAWABLE);
+        addRef(drawable);
+        hasDrawables = true;
+        addInts(left, top, right, bottom);
+    }
+
+    void batch(SpriteBatch batch) {
+        if (batchCount == batches.size())
+            batches.add(new SpriteBatch(batch.getSheet(), batch.getCount()));
+        SpriteBatch copy = batches.get(batchCount++);
+        copy.set(batch);
+        addOp(BATCH);
+        addRef(copy);
+    }
+
+    /**
+     * Execute the commands over a {@link Canvas}.
+     * @param canvas the {@link Canvas} to draw on.
+     * @param paint the {@link Paint} used for the commands. Its color, style, stroke width
+     *              and text attributes are changed.
+     * @param src an auxiliary {@link Rect}, its value is changed.
+     * @param dst another auxiliary {@link Rect}, its value is changed.
+     */
+    public void replay(Canvas canvas, Paint paint, Rect src, Rect dst) {
+        int ii = 0, fi = 0, ri = 0;
+        for (int op = 0; op < opCount; op++) {
+            switch (ops[op]) {
+                case CLEAR: {
+                    int color = ints[ii++];
+                    canvas.drawRGB((color & 0xff0000) >> 16, (color & 0xff00) >> 8, color & 0xff);
+                    break;
+                }
+                case LINE:
+                    paint.setStrokeWidth(floats[fi + 4]);
+                    paint.setColor(ints[ii++]);
+                    canvas.drawLine(floats[fi], floats[fi + 1], floats[fi + 2], floats[fi + 3], paint);
+                    fi += 5;
+                    break;
+                case RECT:
+                    paint.setColor(ints[ii++]);
+                    paint.setStyle(Paint.Style.FILL);
+                    canvas.drawRect(floats[fi], floats[fi + 1], floats[fi + 2], floats[fi + 3], paint);
+                    fi += 4;
+                    break;
+                case CIRCLE:
+                    paint.setColor(ints[ii++]);
+                    paint.setStyle(Paint.Style.FILL);
+                    canvas.drawCircle(floats[fi], floats[fi + 1], floats[fi + 2], paint);
+                    fi += 4;
+                    break;
+                case BITMAP:
+                    canvas.drawBitmap((Bitmap) refs[ri++], floats[fi], floats[fi + 1], null);
+                    fi += 2;
+                    break;
+                case BITMAP_RECT: {
+                    boolean hasSrc = ints[ii] != 0;
+                    src.set(ints[ii + 1], ints[ii + 2], ints[ii + 3], ints[ii + 4]);
+                    dst.set(ints[ii + 5], ints[ii + 6], ints[ii + 7], ints[ii + 8]);
+                    ii += 9;
+                    canvas.drawBitmap((Bitmap) refs[ri++], hasSrc ? src : null, dst, null);
+                    break;
+                }
+                case TEXT: {
+                    String s = (String) refs[ri++];
+                    paint.setTypeface((Typeface) refs[ri++]);
+                    paint.setTextSize(floats[fi + 2]);
+                    paint.setColor(ints[ii++]);
+                    paint.setTextAlign(ALIGNS[ints[ii++]]);
+                    canvas.drawText(s, floats[fi], floats[fi + 1], paint);
+                    fi += 3;
+                    break;
+                }
+                case BATCH:
+                    ((SpriteBatch) refs[ri++]).draw(canvas, paint);
+                    break;
+                case DRAWABLE: {
+                    Drawable drawable = (Drawable) refs[ri++];
+                    drawable.setBounds(ints[ii], ints[ii + 1], ints[ii + 2], ints[ii + 3]);
+                    ii += 4;
+                    drawable.draw(canvas);
+                    break;
+                }
+            }
+        }
+    }
+
+    private void addOp(int op) {
+        if (opCount == ops.length)
+            ops = grow(ops);
+        ops[opCount++] = op;
+    }
+
+    private void addInt(int value) {
+        if (intCount == ints.length)
+            ints = grow(ints);
+        ints[intCount++] = value;
+    }
+
+    private void addInts(int a, int b, int c, int d) {
+        addInt(a);
+        addInt(b);
+        addInt(c);
+        addInt(d);
+    }
+
+    private void addFloat(float value) {
+        if (floatCount == floats.length) {
+            float[] newFloats = new float[floats.length * 2];
+            System.arraycopy(floats, 0, newFloats, 0, floatCount);
+            floats = newFloats;
+        }
+        floats[floatCount++] = value;
+    }
+
+    private void addFloats(float a, float b, float c, float d) {
+        addFloat(a);
+        addFloat(b);
+        addFloat(c);
+        addFloat(d);
+    }
+
+    private void addRef(Object ref) {
+        if (refCount == refs.length) {
+            Object[] newRefs = new Object[refs.length * 2];
+            System.arraycopy(refs, 0, newRefs, 0, refCount);
+            refs = newRefs;
+        }
+        refs[refCount++] = ref;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] newArray = new int[array.length * 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
@@ -0,0 +1,86 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Accumulator for running the updates of a game at a fixed rate.</p>
+ * <p>The time elapsed between frames is added to an accumulator and
+ * {@link #advance(float)} returns how many updates of {@link #getStepTime()} seconds
+ * fit in it. The number of updates per frame is bounded, so that after a stall
+ * (for instance, when the application returns from the background) the game does not
+ * try to catch up with all the time lost. The part of the accumulator that
+ * is left is available as an interpolation factor via {@link #getAlpha()}.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class FixedTimeStep {
+    private final float stepTime;
+    private final int maxStepsPerFrame;
+    private float accumulator;
+    private long droppedSteps;
+
+    /**
+     * Constructor.
+     * @param updatesPerSecond the number of updates per second, for instance 60.
+     * @param maxStepsPerFrame the maximum number of updates in a single frame. The
+     *                         time that does not fit is discarded.
+     */
+    public FixedTimeStep(int updatesPerSecond, int maxStepsPerFrame) {
+        if (updatesPerSecond <= 0)
+            throw new IllegalArgumentException("The number of updates per second must be positive");
+        if (maxStepsPerFrame <= 0)
+            throw new IllegalArgumentException("The maximum number of steps per frame must be positive");
+        this.stepTime = 1f / updatesPerSecond;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Add the time elapsed to the accumulator and compute the number of updates to perform.
+     * @param deltaTime the time (in seconds) since the last call.
+     * @return the number of updates of {@link #getStepTime()} seconds to perform. It can be zero.
+     */
+    public int advance(float deltaTime) {
+        accumulator += deltaTime;
+        int steps = (int) (accumulator / stepTime);
+        if (steps > maxStepsPerFrame) {
+            droppedSteps += steps - maxStepsPerFrame;
+            steps = maxStepsPerFrame;
+            accumulator = accumulator % stepTime;
+        } else
+            accumulator -= steps * stepTime;
+        return steps;
+    }
+
+    /**
+     * @return the duration (in seconds) of each update.
+     */
+    public float getStepTime() {
+        return stepTime;
+    }
+
+    /**
+     * @return the fraction of an update that is pending in the accumulator,
+     * between 0 and 1. It can be used to interpolate between the previous and the
+     * current state when drawing.
+     */
+    public float getAlpha() {
+        return Math.min(accumulator / stepTime, 1f);
+    }
+
+    /**
+     * @return the number of updates discarded because of the limit of steps per frame.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * Empty the accumulator.
+     */
+    public void reset() {
+        accumulator = 0;
+    }
+}
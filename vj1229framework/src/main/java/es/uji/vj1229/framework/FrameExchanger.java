@@ -0,0 +1,105 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>A bounded exchange of reusable frame buffers between a producer and a consumer thread.</p>
+ * <p>All the buffers are created in the constructor. The producer obtains an empty buffer
+ * with {@link #acquire()}, fills it and hands it to the consumer with {@link #publish}.
+ * The consumer gets the buffers in order with {@link #take()} and returns them with
+ * {@link #release} once used. No objects are created after the construction.</p>
+ * <p>With two buffers, the producer can fill one frame while the consumer uses the
+ * previous one. More buffers allow the producer to get further ahead.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @param <T> the type of the buffers
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class FrameExchanger<T> {
+    private final Object[] free;
+    private int freeCount;
+    private final Object[] ready;
+    private int readyHead, readyCount;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     * @param buffers the number of buffers, at least two.
+     * @param factory the factory used to create the buffers.
+     */
+    public FrameExchanger(int buffers, Pool.PoolObjectFactory<T> factory) {
+        if (buffers < 2)
+            throw new IllegalArgumentException("At least two buffers are needed");
+        free = new Object[buffers];
+        ready = new Object[buffers];
+        for (int i = 0; i < buffers; i++)
+            free[i] = factory.createObject();
+        freeCount = buffers;
+    }
+
+    /**
+     * Obtain an empty buffer, waiting until one is available.
+     * @return the buffer or {@code null} if the exchanger was closed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T acquire() throws InterruptedException {
+        while (!closed && freeCount == 0)
+            wait();
+        if (closed)
+            return null;
+        T buffer = (T) free[--freeCount];
+        free[freeCount] = null;
+        return buffer;
+    }
+
+    /**
+     * Hand a filled buffer to the consumer.
+     * @param buffer a buffer obtained with {@link #acquire()}.
+     */
+    public synchronized void publish(T buffer) {
+        ready[(readyHead + readyCount) % ready.length] = buffer;
+        readyCount++;
+        notifyAll();
+    }
+
+    /**
+     * Obtain the oldest filled buffer, waiting until one is available.
+     * @return the buffer or {@code null} if the exchanger was closed.
+     * @throws InterruptedException if the thread is interrupted while waiting.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized T take() throws InterruptedException {
+        while (!closed && readyCount == 0)
+            wait();
+        if (closed)
+            return null;
+        T buffer = (T) ready[readyHead];
+        ready[readyHead] = null;
+        readyHead = (readyHead + 1) % ready.length;
+        readyCount--;
+        return buffer;
+    }
+
+    /**
+     * Return a buffer so that it can be obtained again with {@link #acquire()}. It can be
+     * used by the consumer after using a buffer or by the producer to discard a buffer
+     * without publishing it.
+     * @param buffer the buffer.
+     */
+    public synchronized void release(T buffer) {
+        free[freeCount++] = buffer;
+        notifyAll();
+    }
+
+    /**
+     * Close the exchanger. The threads waiting in {@link #acquire()} or {@link #take()}
+     * are released and receive {@code null}.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+}
@@ -0,0 +1,166 @@
+package es.uji.vj1229.framework;
+
+import android.view.Choreographer;
+
+/**
+ * <p>Paces the frames of a render thread with the vertical synchronization of the display.</p>
+ * <p>The scheduler uses {@link Choreographer} frame callbacks to know when the display
+ * starts a new frame. The render thread calls {@link #awaitFrame()}, that blocks until the
+ * next frame that respects the maximum number of frames per second. The cap is converted
+ * into a whole number of refresh periods, so that a 60 FPS cap gives 60 FPS in 60 and
+ * 120 Hz panels and 45 FPS in a 90 Hz panel, always with even pacing.</p>
+ * <p>Frame callbacks are only requested while the render thread is waiting, so an idle
+ * render thread does not wake up the UI thread.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class FrameScheduler implements Choreographer.FrameCallback {
+    private static final float DEFAULT_REFRESH_RATE = 60f;
+
+    private final int maxFramesPerSecond;
+    private Choreographer choreographer;
+    private boolean running;
+    private boolean callbackPending;
+    private long vsyncCount;
+    private long lastVsyncNanos;
+    private long refreshPeriodNanos;
+    private int vsyncsPerFrame;
+    private long lastFrameNanos;
+    private long frames;
+    private long missedFrames;
+
+    /**
+     * Constructor.
+     * @param maxFramesPerSecond the maximum number of frames per second. If it is greater
+     *                           than the refresh rate of the display, the refresh rate is used.
+     */
+    public FrameScheduler(int maxFramesPerSecond) {
+        if (maxFramesPerSecond <= 0)
+            throw new IllegalArgumentException("The maximum number of frames per second must be positive");
+        this.maxFramesPerSecond = maxFramesPerSecond;
+    }
+
+    /**
+     * Start receiving frame callbacks. It must be called from a thread with a
+     * {@link android.os.Looper}, normally the UI thread.
+     * @param refreshRate the refresh rate of the display in Hz, as returned by
+     *                    {@link android.view.Display#getRefreshRate()}. If it is not
+     *                    positive, 60 Hz is assumed.
+     */
+    public void start(float refreshRate) {
+        Choreographer choreographer = Choreographer.getInstance();
+        if (refreshRate <= 0)
+            refreshRate = DEFAULT_REFRESH_RATE;
+        synchronized (this) {
+            this.choreographer = choreographer;
+            refreshPeriodNanos = (long) (1_000_000_000 / refreshRate);
+            vsyncsPerFrame = Math.max(1, (int) Math.ceil(refreshRate / maxFramesPerSecond - 0.05f));
+            lastFrameNanos = 0;
+            running = true;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Stop receiving frame callbacks. A thread blocked in {@link #awaitFrame()} is released.
+     */
+    public void stop() {
+        Choreographer toRemove;
+        synchronized (this) {
+            running = false;
+            toRemove = callbackPending ? choreographer : null;
+            callbackPending = false;
+            notifyAll();
+        }
+        if (toRemove != null)
+            toRemove.removeFrameCallback(this);
+    }
+
+    /**
+     * Implementation of {@link Choreographer.FrameCallback#doFrame}. It is called in the
+     * thread that called {@link #start(float)}.
+     * @param frameTimeNanos the time, in the {@link System#nanoTime()} time base, at which
+     *                       the frame started.
+     */
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        synchronized (this) {
+            callbackPending = false;
+            vsyncCount++;
+            lastVsyncNanos = frameTimeNanos;
+            notifyAll();
+        }
+    }
+
+    /**
+     * Block the calling thread until it is time to render a new frame.
+     * @return the time of the frame, in the {@link System#nanoTime()} time base, or -1 if
+     * the scheduler was stopped or the thread interrupted while waiting. In the latter case,
+     * the interrupt status of the thread is set again, so the caller must clear it with
+     * {@link Thread#interrupted()} before calling this method again.
+     */
+    public synchronized long awaitFrame() {
+        try {
+            while (running) {
+                long seen = vsyncCount;
+                if (!callbackPending) {
+                    callbackPending = true;
+                    choreographer.postFrameCallback(this);
+                }
+                while (running && vsyncCount == seen)
+                    wait();
+                if (!running)
+                    break;
+                if (lastFrameNanos == 0
+                        || lastVsyncNanos - lastFrameNanos >= vsyncsPerFrame * refreshPeriodNanos - refreshPeriodNanos / 2) {
+                    countMissedFrames();
+                    lastFrameNanos = lastVsyncNanos;
+                    frames++;
+                    return lastVsyncNanos;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return -1;
+    }
+
+    private void countMissedFrames() {
+        if (lastFrameNanos == 0)
+            return;
+        long frameInterval = vsyncsPerFrame * refreshPeriodNanos;
+        long intervals = (lastVsyncNanos - lastFrameNanos + frameInterval / 2) / frameInterval;
+        if (intervals > 1)
+            missedFrames += intervals - 1;
+    }
+
+    /**
+     * @return the number of frames rendered since the creation of the scheduler.
+     */
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of frames that were missed because the previous frame took more
+     * than its time slot.
+     */
+    public synchronized long getMissedFrames() {
+        return missedFrames;
+    }
+
+    /**
+     * @return the effective maximum number of frames per second once the cap is adjusted
+     * to the refresh rate of the display. It is 0 before {@link #start(float)}.
+     */
+    public synchronized float getEffectiveFramesPerSecond() {
+        if (refreshPeriodNanos == 0)
+            return 0;
+        return 1_000_000_000f / (vsyncsPerFrame * refreshPeriodNanos);
+    }
+}
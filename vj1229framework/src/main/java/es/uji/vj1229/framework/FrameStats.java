@@ -0,0 +1,332 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Timing statistics of the frames drawn by a {@link GameView}.</p>
+ * <p>The time spent in each {@link Phase} of the last frames is kept in a rolling window
+ * of fixed size together with a histogram of the window, so that recording a frame does
+ * not create objects. The frames that take longer than the budget set with
+ * {@link #setFrameBudget(float)} are counted as janky.</p>
+ * <p>The statistics are filled by the render thread of the {@link GameView}, so they must
+ * only be consulted from the {@link IEventProcessor} or the {@link GameView.IBitmapProvider}.
+ * They can be drawn with {@link Graphics#drawFrameStats(FrameStats, BitmapFont, float, float)}.
+ * Other threads can receive a {@link Snapshot} periodically through a {@link Listener}.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class FrameStats {
+    /**
+     * The phases of a frame.
+     */
+    public enum Phase {
+        /**
+         * The calls to {@link IEventProcessor#onUpdate}.
+         */
+        UPDATE("update"),
+        /**
+         * The call to {@link GameView.IBitmapProvider#onDrawingRequested()} or to
+         * {@link GameView.ICommandProvider#onRecordingRequested}.
+         */
+        DRAW_REQUEST("draw"),
+        /**
+         * Locking the canvas of the surface.
+         */
+        LOCK_CANVAS("lock"),
+        /**
+         * Copying the frame to the canvas of the surface.
+         */
+        BLIT("blit"),
+        /**
+         * Unlocking the canvas and posting it to the screen.
+         */
+        UNLOCK_AND_POST("post"),
+        /**
+         * The whole frame.
+         */
+        FRAME("frame");
+
+        private final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+
+        /**
+         * @return a short name for the phase.
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * The interface for receiving the statistics periodically.
+     */
+    public interface Listener {
+        /**
+         * Called from the render thread after the number of frames given in
+         * {@link #setListener(Listener, int)}.
+         * @param stats a copy of the statistics, it can be kept and passed to other threads.
+         */
+        void onFrameStats(Snapshot stats);
+    }
+
+    /**
+     * An immutable copy of the statistics at the end of a frame.
+     */
+    public static final class Snapshot {
+        private final long frames, jankFrames;
+        private final int filled;
+        private final float[] last = new float[N_PHASES];
+        private final float[] average = new float[N_PHASES];
+        private final float[] max = new float[N_PHASES];
+        private final int[][] histogram = new int[N_PHASES][];
+
+        private Snapshot(FrameStats stats) {
+            frames = stats.frames;
+            jankFrames = stats.jankFrames;
+            filled = stats.filled;
+            for (Phase phase : PHASES) {
+                int i = phase.ordinal();
+                last[i] = stats.getLastMillis(phase);
+                average[i] = stats.getAverageMillis(phase);
+                max[i] = stats.getMaxMillis(phase);
+                histogram[i] = stats.histogram[i].clone();
+            }
+        }
+
+        /**
+         * @return the number of frames recorded.
+         */
+        public long getFrames() {
+            return frames;
+        }
+
+        /**
+         * @return the number of frames that exceeded the budget.
+         */
+        public long getJankFrames() {
+            return jankFrames;
+        }
+
+        /**
+         * @param phase the phase.
+         * @return the time spent in the phase in the last frame, in milliseconds.
+         */
+        public float getLastMillis(Phase phase) {
+            return last[phase.ordinal()];
+        }
+
+        /**
+         * @param phase the phase.
+         * @return the average time spent in the phase in the frames of the window, in milliseconds.
+         */
+        public float getAverageMillis(Phase phase) {
+            return average[phase.ordinal()];
+        }
+
+        /**
+         * @param phase the phase.
+         * @return the maximum time spent in the phase in the frames of the window, in milliseconds.
+         */
+        public float getMaxMillis(Phase phase) {
+            return max[phase.ordinal()];
+        }
+
+        /**
+         * The same as {@link FrameStats#getPercentileMillis(Phase, float)}.
+         * @param phase the phase.
+         * @param percentile the percentile, between 0 and 100.
+         * @return the percentile in milliseconds.
+         */
+        public float getPercentileMillis(Phase phase, float percentile) {
+            int i = phase.ordinal();
+            return percentile(histogram[i], filled, max[i], percentile);
+        }
+    }
+
+    static final Phase[] PHASES = Phase.values();
+    private static final int N_PHASES = PHASES.length;
+    // The last bucket gathers the frames that do not fit in the others
+    private static final long BUCKET_NANOS = 500_000;
+    private static final int BUCKETS = 64;
+
+    private final int windowSize;
+    private final long[][] window;
+    private final int[][] histogram = new int[N_PHASES][BUCKETS];
+    private final long[] sums = new long[N_PHASES];
+    private final long[] current = new long[N_PHASES];
+    private int next, filled;
+    private long frameStart;
+    private long frames, jankFrames;
+    private long budgetNanos = 1_000_000_000L / 60;
+    private Listener listener;
+    private int framesPerReport;
+
+    /**
+     * Constructor.
+     * @param windowSize the number of frames used for the averages, maximums and percentiles.
+     */
+    public FrameStats(int windowSize) {
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("The size of the window must be positive");
+        this.windowSize = windowSize;
+        window = new long[N_PHASES][windowSize];
+    }
+
+    /**
+     * Set the maximum duration of a frame. The default value corresponds to 60 frames
+     * per second.
+     * @param millis the budget in milliseconds.
+     */
+    public void setFrameBudget(float millis) {
+        budgetNanos = (long) (millis * 1_000_000);
+    }
+
+    /**
+     * Set the listener that receives the statistics periodically.
+     * @param listener the listener or {@code null} to remove it.
+     * @param framesPerReport the number of frames between calls.
+     */
+    public void setListener(Listener listener, int framesPerReport) {
+        this.listener = listener;
+        this.framesPerReport = Math.max(1, framesPerReport);
+    }
+
+    /**
+     * Mark the beginning of a frame.
+     */
+    public void beginFrame() {
+        frameStart = System.nanoTime();
+        for (int i = 0; i < N_PHASES; i++)
+            current[i] = 0;
+    }
+
+    /**
+     * Add time to a phase of the current frame.
+     * @param phase the phase.
+     * @param nanos the time in nanoseconds.
+     */
+    public void record(Phase phase, long nanos) {
+        current[phase.ordinal()] += nanos;
+    }
+
+    /**
+     * Mark the end of a frame. Its times are added to the statistics.
+     */
+    public void endFrame() {
+        current[Phase.FRAME.ordinal()] = System.nanoTime() - frameStart;
+        for (int i = 0; i < N_PHASES; i++) {
+            if (filled == windowSize) {
+                long old = window[i][next];
+                sums[i] -= old;
+                histogram[i][bucket(old)]--;
+            }
+            window[i][next] = current[i];
+            sums[i] += current[i];
+            histogram[i][bucket(current[i])]++;
+        }
+        next = (next + 1) % windowSize;
+        if (filled < windowSize)
+            filled++;
+        frames++;
+        if (current[Phase.FRAME.ordinal()] > budgetNanos)
+            jankFrames++;
+        if (listener != null && frames % framesPerReport == 0)
+            listener.onFrameStats(new Snapshot(this));
+    }
+
+    private static int bucket(long nanos) {
+        return (int) Math.min(nanos / BUCKET_NANOS, BUCKETS - 1);
+    }
+
+    /**
+     * @return the number of frames recorded.
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of frames that exceeded the budget.
+     */
+    public long getJankFrames() {
+        return jankFrames;
+    }
+
+    /**
+     * @param phase the phase.
+     * @return the time spent in the phase in the last frame, in milliseconds.
+     */
+    public float getLastMillis(Phase phase) {
+        if (filled == 0)
+            return 0;
+        return toMillis(window[phase.ordinal()][(next + windowSize - 1) % windowSize]);
+    }
+
+    /**
+     * @param phase the phase.
+     * @return the average time spent in the phase in the frames of the window, in milliseconds.
+     */
+    public float getAverageMillis(Phase phase) {
+        return filled == 0 ? 0 : toMillis(sums[phase.ordinal()]) / filled;
+    }
+
+    /**
+     * @param phase the phase.
+     * @return the maximum time spent in the phase in the frames of the window, in milliseconds.
+     */
+    public float getMaxMillis(Phase phase) {
+        long[] times = window[phase.ordinal()];
+        long max = 0;
+        for (int i = 0; i < filled; i++)
+            max = Math.max(max, times[i]);
+        return toMillis(max);
+    }
+
+    /**
+     * Return an upper bound of a percentile of the time spent in a phase. Its resolution
+     * is half a millisecond up to 31.5 milliseconds. Above that, the maximum of the window
+     * (see {@link #getMaxMillis(Phase)}) is returned.
+     * @param phase the phase.
+     * @param percentile the percentile, between 0 and 100.
+     * @return the percentile in milliseconds.
+     */
+    public float getPercentileMillis(Phase phase, float percentile) {
+        return percentile(histogram[phase.ordinal()], filled, getMaxMillis(phase), percentile);
+    }
+
+    private static float percentile(int[] counts, int filled, float maxMillis, float percentile) {
+        if (filled == 0)
+            return 0;
+        long needed = (long) Math.ceil(filled * percentile / 100);
+        int accumulated = 0;
+        for (int b = 0; b < BUCKETS - 1; b++) {
+            accumulated += counts[b];
+            if (accumulated >= needed)
+                return Math.min(toMillis((b + 1) * BUCKET_NANOS), maxMillis);
+        }
+        return maxMillis;
+    }
+
+    /**
+     * Forget all the frames recorded.
+     */
+    public void reset() {
+        for (int i = 0; i < N_PHASES; i++) {
+            sums[i] = 0;
+            for (int b = 0; b < BUCKETS; b++)
+                histogram[i][b] = 0;
+        }
+        next = filled = 0;
+        frames = jankFrames = 0;
+    }
+
+    private static float toMillis(long nanos) {
+        return nanos / 1_000_000f;
+    }
+}
@@ -24,6 +24,7 @@ import androidx.appcompat.app.AppCompatActivity;
  */
 public abstract class GameActivity extends AppCompatActivity implements GameView.IBitmapProvider {
     private GameView gameView = null;
+    private AssetLoader assetLoader = null;
 
     /**
      * <p>If this method is called inside {@link #onCreate(Bundle)}, it creates a full screen
@@ -92,6 +93,26 @@ public abstract class GameActivity extends AppCompatActivity implements GameView
         return gameView;
     }
 
+    /**
+     * Return the {@link AssetLoader} of the activity, creating it the first time. Its
+     * threads are stopped when the activity is destroyed, and it wakes up the
+     * {@link GameView} each time that a task finishes.
+     *
+     * @return the {@link AssetLoader}
+     */
+    protected AssetLoader getAssetLoader() {
+        if (assetLoader == null) {
+            assetLoader = new AssetLoader(this);
+            // Wake up the view if it sleeps, so that the callbacks are dispatched
+            assetLoader.setFinishListener(() -> {
+                GameView view = gameView;
+                if (view != null)
+                    view.requestRender();
+            });
+        }
+        return assetLoader;
+    }
+
     /**
      * Transmit to the {@link GameView} the onResume event.
      */
@@ -109,4 +130,14 @@ public abstract class GameActivity extends AppCompatActivity implements GameView
         super.onPause();
         gameView.onPause();
     }
+
+    /**
+     * Stop the threads of the {@link AssetLoader}, if it was created.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        if (assetLoader != null)
+            assetLoader.shutdown();
+    }
 }
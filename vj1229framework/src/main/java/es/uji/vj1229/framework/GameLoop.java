@@ -0,0 +1,178 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>The update part of the loop of a game, independent of the view that shows it.</p>
+ * <p>Each call to {@link #update(float)} takes the touch events from an
+ * {@link ITouchEventSource} and passes them, together with the time elapsed, to the
+ * {@link IBatchEventProcessor} or the {@link IEventProcessor}. If a {@link FixedTimeStep}
+ * has been set, the processor is called as many times as steps fit in the time elapsed.</p>
+ * <p>The {@link GameView} uses a loop whose source is its {@link TouchHandler}; a
+ * {@link HeadlessRunner} uses one fed by a {@link TouchRecording}, so that the game can run
+ * without a device.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class GameLoop {
+    /**
+     * The interface of the objects that provide the touch events to the loop.
+     */
+    public interface ITouchEventSource {
+        /**
+         * Replace the contents of {@code batch} with the events that happened since the
+         * last call, up to its capacity.
+         * @param batch the batch that receives the events.
+         */
+        void drainTouchEvents(TouchEventBatch batch);
+    }
+
+    private final ITouchEventSource touchEventSource;
+    private final TouchEventBatch touchEventBatch;
+    private final TouchEventList touchEventList;
+    private volatile IEventProcessor eventProcessor;
+    private volatile IBatchEventProcessor batchEventProcessor;
+    private volatile FixedTimeStep fixedTimeStep;
+    private volatile TouchRecorder touchRecorder;
+    private volatile HitTargetGrid hitTargetGrid;
+    private boolean fixedRate;
+    private float alpha = 1;
+    private long frames, updates;
+
+    /**
+     * Constructor.
+     * @param touchEventSource the source of the touch events.
+     * @param maxEventsPerFrame the maximum number of touch events passed to an update.
+     */
+    public GameLoop(ITouchEventSource touchEventSource, int maxEventsPerFrame) {
+        this.touchEventSource = touchEventSource;
+        touchEventBatch = new TouchEventBatch(maxEventsPerFrame);
+        touchEventList = new TouchEventList(maxEventsPerFrame);
+    }
+
+    /**
+     * Sets the {@link IEventProcessor}.
+     * @param eventProcessor the new {@link IEventProcessor}
+     */
+    public void setEventProcessor(IEventProcessor eventProcessor) {
+        this.eventProcessor = eventProcessor;
+    }
+
+    /**
+     * Sets an {@link IBatchEventProcessor} that receives the updates instead of the
+     * {@link IEventProcessor}.
+     * @param batchEventProcessor the new {@link IBatchEventProcessor} or {@code null} to
+     *                            go back to the {@link IEventProcessor}
+     */
+    public void setBatchEventProcessor(IBatchEventProcessor batchEventProcessor) {
+        this.batchEventProcessor = batchEventProcessor;
+    }
+
+    /**
+     * Makes the updates happen in steps of fixed duration.
+     * @param fixedTimeStep the {@link FixedTimeStep} or {@code null} to make one update per
+     *                      call to {@link #update(float)} with the time elapsed.
+     */
+    public void setFixedTimeStep(FixedTimeStep fixedTimeStep) {
+        this.fixedTimeStep = fixedTimeStep;
+    }
+
+    /**
+     * Sets a {@link TouchRecorder} that receives the time and the events of each call to
+     * {@link #update(float)}.
+     * @param touchRecorder the recorder or {@code null} to stop recording.
+     */
+    public void setTouchRecorder(TouchRecorder touchRecorder) {
+        this.touchRecorder = touchRecorder;
+    }
+
+    /**
+     * Sets a {@link HitTargetGrid} that finds the target of each touch event before
+     * passing it to the processor.
+     * @param hitTargetGrid the grid or {@code null} to leave the events without target.
+     */
+    public void setHitTargetGrid(HitTargetGrid hitTargetGrid) {
+        this.hitTargetGrid = hitTargetGrid;
+    }
+
+    /**
+     * Advance the game. The touch events are passed to the first update; if there are
+     * several, the others receive no events.
+     * @param deltaTime the time (in seconds) since the previous call.
+     * @return the fraction of an update step elapsed since the last update when the
+     * updates have a fixed duration, 1 otherwise.
+     * @throws IllegalStateException if neither an {@link IEventProcessor} nor an
+     * {@link IBatchEventProcessor} has been set.
+     */
+    public float update(float deltaTime) {
+        if (eventProcessor == null && batchEventProcessor == null)
+            throw new IllegalStateException("There is no event processor in the game loop");
+        FixedTimeStep timeStep = fixedTimeStep;
+        fixedRate = timeStep != null;
+        int steps = timeStep == null ? 1 : timeStep.advance(deltaTime);
+        // Without updates, the events wait for the next frame
+        if (steps > 0) {
+            touchEventSource.drainTouchEvents(touchEventBatch);
+            HitTargetGrid grid = hitTargetGrid;
+            if (grid != null)
+                grid.resolve(touchEventBatch);
+        } else
+            touchEventBatch.clear();
+        TouchRecorder recorder = touchRecorder;
+        if (recorder != null)
+            recorder.onFrame(deltaTime, touchEventBatch);
+
+        float stepTime = timeStep == null ? deltaTime : timeStep.getStepTime();
+        for (int step = 0; step < steps; step++) {
+            if (step == 1)
+                touchEventBatch.clear();
+            dispatch(stepTime);
+        }
+        alpha = timeStep == null ? 1 : timeStep.getAlpha();
+        frames++;
+        return alpha;
+    }
+
+    private void dispatch(float deltaTime) {
+        IBatchEventProcessor batchProcessor = batchEventProcessor;
+        IEventProcessor processor = eventProcessor;
+        if (batchProcessor != null)
+            batchProcessor.onUpdate(deltaTime, touchEventBatch);
+        else if (processor != null)
+            processor.onUpdate(deltaTime, touchEventList.fill(touchEventBatch));
+        else
+            throw new IllegalStateException("There is no event processor in the game loop");
+        updates++;
+    }
+
+    /**
+     * @return {@code true} if the last call to {@link #update(float)} used a {@link FixedTimeStep}.
+     */
+    public boolean isFixedRate() {
+        return fixedRate;
+    }
+
+    /**
+     * @return the value returned by the last call to {@link #update(float)}.
+     */
+    public float getAlpha() {
+        return alpha;
+    }
+
+    /**
+     * @return the number of calls to {@link #update(float)}.
+     */
+    public long getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of calls to the event processors.
+     */
+    public long getUpdates() {
+        return updates;
+    }
+}
@@ -3,8 +3,13 @@ package es.uji.vj1229.framework;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
 import android.graphics.Rect;
 import android.util.AttributeSet;
+import android.view.Display;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
 
@@ -18,6 +23,9 @@ import android.view.SurfaceView;
  * {@link IBitmapProvider} that receives in the constructor or is
  * set using {@link GameView#setBitmapProvider}
  * </p>
+ * <p>In {@link RenderMode#ON_DEMAND} mode, the render thread sleeps while there is nothing
+ * new to draw and wakes up with the touch events, the calls to {@link #requestRender()} and
+ * the timers set with {@link #scheduleRender(long)}.</p>
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
  * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
  * "Beginning Android Games" of Mario Zechner and Robert Green</p>
@@ -26,7 +34,24 @@ import android.view.SurfaceView;
  * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
  */
 
-public class GameView extends SurfaceView implements Runnable {
+public class GameView extends SurfaceView implements Runnable, SurfaceHolder.Callback {
+    /**
+     * The ways in which the render thread decides when to produce a frame.
+     */
+    public enum RenderMode {
+        /**
+         * The frames are produced one after the other. When the game has nothing new to
+         * draw, the thread waits up to 10 milliseconds or until a touch event arrives.
+         */
+        CONTINUOUS,
+        /**
+         * The frames are produced while the game has something new to draw. Then, the thread
+         * sleeps until a touch event arrives, {@link #requestRender()} is called, or a timer
+         * set with {@link #scheduleRender(long)} expires.
+         */
+        ON_DEMAND
+    }
+
     public interface IBitmapProvider {
         /**
          * The method called by the {@link GameView} to notify the desired dimensions
@@ -43,14 +68,108 @@ public class GameView extends SurfaceView implements Runnable {
          * @return The desired {@link Bitmap}
          */
         Bitmap onDrawingRequested();
+
+        /**
+         * The method called by the {@link GameView} to request the {@link Bitmap} to draw
+         * in the screen when the updates run at a fixed rate (see
+         * {@link GameView#setFixedUpdateRate}). By default, it ignores {@code alpha} and
+         * calls {@link #onDrawingRequested()}.
+         *
+         * @param alpha the fraction (between 0 and 1) of an update step elapsed since the
+         *              last update. It can be used to interpolate the positions of the objects.
+         * @return The desired {@link Bitmap}
+         */
+        default Bitmap onDrawingRequested(float alpha) {
+            return onDrawingRequested();
+        }
+
+        /**
+         * The method called by the {@link GameView} after obtaining a {@link Bitmap} to know
+         * which part of it has changed since the previous frame. Only that part of the screen
+         * is updated. It can be implemented with {@link Graphics#collectDirtyRegion(Rect)}.
+         * By default, it returns {@code false} and the whole screen is updated.
+         *
+         * @param dirty the {@link Rect} that receives the region that changed, in the
+         *              coordinates of the {@link Bitmap}. If it is empty, the screen is not updated.
+         * @return {@code true} if {@code dirty} has been filled, {@code false} if the whole
+         * {@link Bitmap} has to be drawn
+         */
+        default boolean onDirtyRegionRequested(Rect dirty) {
+            return false;
+        }
+
+        /**
+         * The method called by the {@link GameView} after obtaining a {@link Bitmap} to know
+         * which part of it contains the frame. Only that part is scaled to the screen. It can
+         * be implemented with {@link Graphics#getRenderRect(Rect)} when the frames are drawn
+         * with a render scale. By default, it returns {@code false} and the whole
+         * {@link Bitmap} is used.
+         *
+         * @param rect the {@link Rect} that receives the part of the {@link Bitmap}
+         * @return {@code true} if {@code rect} has been filled, {@code false} if the whole
+         * {@link Bitmap} contains the frame
+         */
+        default boolean onRenderRectRequested(Rect rect) {
+            return false;
+        }
     }
 
+    /**
+     * The interface of the objects that provide the frames as lists of drawing
+     * commands instead of as bitmaps. See {@link GameView#setCommandProvider}.
+     */
+    public interface ICommandProvider {
+        /**
+         * The method called by the {@link GameView} to request the commands that draw
+         * the next frame. They are normally recorded by calling
+         * {@link Graphics#startRecording(DrawCommandBuffer)} before drawing and
+         * {@link Graphics#stopRecording()} after it.
+         *
+         * @param buffer the buffer that will receive the commands
+         * @param alpha the fraction (between 0 and 1) of an update step elapsed since the
+         *              last update when the updates run at a fixed rate, 1 otherwise
+         * @return {@code true} if the frame has to be drawn, {@code false} if the screen
+         * does not need to change
+         */
+        boolean onRecordingRequested(DrawCommandBuffer buffer, float alpha);
+    }
+
+    private static final int COMMAND_BUFFERS = 2;
+    private static final long IDLE_WAIT_MILLIS = 10;
+
     private IBitmapProvider bitmapProvider;
-    private IEventProcessor eventProcessor;
+    private volatile FrameStats frameStats;
     final SurfaceHolder holder;
     volatile boolean running;
     Thread renderThread;
     final TouchHandler touchHandler;
+    private final GameLoop gameLoop;
+    private volatile FrameScheduler frameScheduler;
+    private volatile float partialRedrawThreshold = 0.5f;
+    private volatile boolean hardwareScaling;
+    private volatile boolean filterBitmap;
+    // Only used by the thread that draws on the surface, it forgets them if fixedSizeStale is set
+    private int fixedWidth, fixedHeight;
+    private volatile boolean fixedSizeStale;
+    private final Paint presentPaint = new Paint();
+    private final PorterDuffXfermode copyMode = new PorterDuffXfermode(PorterDuff.Mode.SRC);
+    private int surfaceFormat = PixelFormat.UNKNOWN;
+    private volatile boolean fullRedrawNeeded;
+    private final Object surfaceLock = new Object();
+    private volatile boolean surfaceReady;
+    private final Object renderSignal = new Object();
+    private RenderMode renderMode = RenderMode.CONTINUOUS;
+    private boolean renderRequested;
+    private long renderTime;
+    private long wakeTime;
+    private final Rect dirtyRect = new Rect();
+    private final Rect srcRect = new Rect();
+    private volatile ResolutionController resolutionController;
+    private long workNanos;
+    private volatile ICommandProvider commandProvider;
+    private ICommandProvider activeCommandProvider;
+    private FrameExchanger<DrawCommandBuffer> commandBuffers;
+    Thread presentThread;
 
     public GameView(Context context) {
         this(context, null);
@@ -73,9 +192,12 @@ public class GameView extends SurfaceView implements Runnable {
     public GameView(Context context, AttributeSet attributeSet, IBitmapProvider bitmapProvider, IEventProcessor eventProcessor) {
         super(context, attributeSet);
         this.bitmapProvider = bitmapProvider;
-        this.eventProcessor = eventProcessor;
         holder = getHolder();
+        holder.addCallback(this);
         this.touchHandler = new TouchHandler(this);
+        touchHandler.setEventListener(this::requestRender);
+        gameLoop = new GameLoop(touchHandler, touchHandler.getQueueCapacity());
+        gameLoop.setEventProcessor(eventProcessor);
         running = false;
     }
 
@@ -95,7 +217,372 @@ public class GameView extends SurfaceView implements Runnable {
      * @param eventProcessor the new  {@link IBitmapProvider}
      */
     public void setEventProcessor(IEventProcessor eventProcessor) {
-        this.eventProcessor = eventProcessor;
+        gameLoop.setEventProcessor(eventProcessor);
+    }
+
+    /**
+     * <p>Sets an {@link ICommandProvider} to use instead of the {@link IBitmapProvider}.
+     * In that case, the frames are drawn in a pipeline: the render thread updates the game
+     * and records the commands of a frame while another thread draws the previous one in
+     * the screen. The commands are scaled from the dimensions of the {@link Graphics} that
+     * recorded them to those of the view.</p>
+     * <p>The change takes effect the next time the view is resumed.</p>
+     *
+     * @param commandProvider the new {@link ICommandProvider} or {@code null} to go back to
+     *                        the {@link IBitmapProvider}
+     */
+    public void setCommandProvider(ICommandProvider commandProvider) {
+        this.commandProvider = commandProvider;
+    }
+
+    /**
+     * Sets the maximum fraction of the screen that can be updated by drawing only the
+     * region returned by {@link IBitmapProvider#onDirtyRegionRequested(Rect)}. If the
+     * region is bigger, the whole screen is drawn. The default value is 0.5.
+     *
+     * @param partialRedrawThreshold the fraction, between 0 and 1
+     */
+    public void setPartialRedrawThreshold(float partialRedrawThreshold) {
+        this.partialRedrawThreshold = partialRedrawThreshold;
+    }
+
+    /**
+     * <p>Chooses how the frames are scaled to the size of the view. By default, the
+     * surface of the view has the size of the view and each frame is scaled when it is
+     * copied to the surface. With hardware scaling, the size of the surface is fixed to
+     * the size of the frames (see {@link SurfaceHolder#setFixedSize}), so that the copy
+     * needs no scaling and the display hardware does the upscaling.</p>
+     * <p>The coordinates of the touch events are not affected. This method must be called
+     * from the UI thread.</p>
+     *
+     * @param hardwareScaling {@code true} to let the display hardware scale the frames
+     */
+    public void setHardwareScaling(boolean hardwareScaling) {
+        if (!hardwareScaling) {
+            fixedSizeStale = true;
+            this.hardwareScaling = false;
+            holder.setSizeFromLayout();
+        } else
+            this.hardwareScaling = true;
+    }
+
+    /**
+     * Sets whether the frames are filtered when they are scaled in software, that
+     * is, when hardware scaling is not active or the size of the surface does not
+     * match yet that of the frames. Filtering gives smoother results and is slower.
+     * By default, the frames are not filtered.
+     *
+     * @param filterBitmap {@code true} to filter the frames when scaling them
+     */
+    public void setFilterBitmap(boolean filterBitmap) {
+        this.filterBitmap = filterBitmap;
+    }
+
+    private void matchSurfaceSize(int width, int height) {
+        if (fixedSizeStale) {
+            fixedSizeStale = false;
+            fixedWidth = fixedHeight = 0;
+        }
+        if (!hardwareScaling || (width == fixedWidth && height == fixedHeight))
+            return;
+        fixedWidth = width;
+        fixedHeight = height;
+        post(() -> {
+            if (hardwareScaling)
+                holder.setFixedSize(width, height);
+        });
+    }
+
+    // The surface keeps its default format until an opaque frame arrives
+    private void matchSurfaceFormat(Bitmap frameBuffer) {
+        int format;
+        if (frameBuffer.getConfig() == Bitmap.Config.RGB_565)
+            format = PixelFormat.RGB_565;
+        else if (!frameBuffer.hasAlpha())
+            format = PixelFormat.RGBX_8888;
+        else if (surfaceFormat != PixelFormat.UNKNOWN)
+            format = PixelFormat.RGBA_8888;
+        else
+            return;
+        if (format == surfaceFormat)
+            return;
+        surfaceFormat = format;
+        post(() -> holder.setFormat(format));
+    }
+
+    /**
+     * Sets an {@link IBatchEventProcessor} that receives the updates instead of the
+     * {@link IEventProcessor}.
+     *
+     * @param batchEventProcessor the new {@link IBatchEventProcessor} or {@code null} to
+     *                            go back to the {@link IEventProcessor}
+     */
+    public void setBatchEventProcessor(IBatchEventProcessor batchEventProcessor) {
+        gameLoop.setBatchEventProcessor(batchEventProcessor);
+    }
+
+    /**
+     * Sets a {@link TouchRecorder} that captures the time and the touch events of the frames,
+     * so that the session can be replayed later with a {@link HeadlessRunner}.
+     *
+     * @param touchRecorder the recorder or {@code null} to remove it
+     */
+    public void setTouchRecorder(TouchRecorder touchRecorder) {
+        gameLoop.setTouchRecorder(touchRecorder);
+    }
+
+    /**
+     * Sets a {@link HitTargetGrid} that finds the target of each touch event before it
+     * reaches the {@link IEventProcessor}. The grid must only be changed from the updates.
+     *
+     * @param hitTargetGrid the grid or {@code null} to leave the events without target
+     */
+    public void setHitTargetGrid(HitTargetGrid hitTargetGrid) {
+        gameLoop.setHitTargetGrid(hitTargetGrid);
+    }
+
+    /**
+     * Makes the {@link IEventProcessor#onUpdate} calls happen at a fixed rate,
+     * independently of the rate at which the screen is drawn. The time elapsed is accumulated
+     * and {@link IEventProcessor#onUpdate} is called as many times as needed, always with
+     * the same {@code deltaTime}. After each frame, the bitmap is requested using
+     * {@link IBitmapProvider#onDrawingRequested(float)}.
+     *
+     * @param updatesPerSecond the number of updates per second, for instance 60
+     * @param maxUpdatesPerFrame the maximum number of updates before drawing a frame. The
+     *                           time that does not fit after a stall is discarded.
+     */
+    public void setFixedUpdateRate(int updatesPerSecond, int maxUpdatesPerFrame) {
+        gameLoop.setFixedTimeStep(new FixedTimeStep(updatesPerSecond, maxUpdatesPerFrame));
+    }
+
+    /**
+     * Return to the default behaviour: one call to {@link IEventProcessor#onUpdate} per frame
+     * with the time elapsed since the previous one.
+     */
+    public void disableFixedUpdateRate() {
+        gameLoop.setFixedTimeStep(null);
+    }
+
+    /**
+     * Synchronizes the frames with the refresh of the display instead of drawing them
+     * as fast as possible. It must be called from the UI thread.
+     *
+     * @param maxFramesPerSecond the maximum number of frames per second. It is rounded
+     *                           to a whole divisor of the refresh rate of the display.
+     */
+    public void setVsyncPacing(int maxFramesPerSecond) {
+        FrameScheduler scheduler = new FrameScheduler(maxFramesPerSecond);
+        if (running)
+            scheduler.start(getRefreshRate());
+        FrameScheduler previous = frameScheduler;
+        frameScheduler = scheduler;
+        if (previous != null)
+            previous.stop();
+    }
+
+    /**
+     * Go back to drawing the frames as fast as possible. It must be called from the UI thread.
+     */
+    public void disableVsyncPacing() {
+        FrameScheduler previous = frameScheduler;
+        frameScheduler = null;
+        if (previous != null)
+            previous.stop();
+    }
+
+    /**
+     * @return the number of frames missed since the vsync pacing was activated, or 0 if
+     * it is not active.
+     */
+    public long getMissedFrames() {
+        FrameScheduler scheduler = frameScheduler;
+        return scheduler == null ? 0 : scheduler.getMissedFrames();
+    }
+
+    /**
+     * Sets a {@link FrameStats} that receives the time spent in each phase of the frames.
+     * With an {@link ICommandProvider}, the phases of drawing on the screen happen in another
+     * thread and only the update and the recording are measured.
+     *
+     * @param frameStats the new {@link FrameStats} or {@code null} to stop measuring
+     */
+    public void setFrameStats(FrameStats frameStats) {
+        this.frameStats = frameStats;
+    }
+
+    /**
+     * Return the {@link FrameStats} set with {@link #setFrameStats}. It is filled by the render
+     * thread, so it must only be consulted from the {@link IEventProcessor} or the
+     * {@link IBitmapProvider}. Other threads can receive copies with a {@link FrameStats.Listener}.
+     * @return the {@link FrameStats} or {@code null}
+     */
+    public FrameStats getFrameStats() {
+        return frameStats;
+    }
+
+    /**
+     * Sets a {@link ResolutionController} that receives the time spent working in each frame
+     * drawn, so that it can adjust the render scale. The time counts the update, the drawing
+     * request and the copy to the screen, but not the time waiting for the display to lock
+     * or post the canvas. With an {@link ICommandProvider}, only the update and the recording
+     * are counted. The game applies the scale with {@link Graphics#setRenderScale(float)} and
+     * returns the part of the {@link Bitmap} drawn from
+     * {@link IBitmapProvider#onRenderRectRequested}. With hardware scaling, the surface is
+     * resized, and its buffers reallocated, each time that the scale changes.
+     *
+     * @param resolutionController the new {@link ResolutionController} or {@code null}
+     */
+    public void setResolutionController(ResolutionController resolutionController) {
+        this.resolutionController = resolutionController;
+    }
+
+    /**
+     * Sets when the frames are produced. By default, the mode is {@link RenderMode#CONTINUOUS}.
+     * In {@link RenderMode#ON_DEMAND} mode, the frames are produced while the game returns
+     * something to draw from {@link IBitmapProvider#onDrawingRequested()} or
+     * {@link ICommandProvider#onRecordingRequested}, so the animations run at full rate.
+     * When it returns nothing, {@link IEventProcessor#onUpdate} is not called again until
+     * a touch event, a call to {@link #requestRender()} or a timer set with
+     * {@link #scheduleRender(long)}. The time asleep is not included in its {@code deltaTime},
+     * unless a timer was pending, so the game does not jump after waiting for the player and
+     * the countdowns that add the {@code deltaTime} still advance. It is suitable for menus and turn based games. An {@link AssetLoader} created by the
+     * {@link GameActivity} wakes up the view when a task finishes, so that its callbacks
+     * are dispatched.
+     *
+     * @param renderMode the new mode
+     */
+    public void setRenderMode(RenderMode renderMode) {
+        synchronized (renderSignal) {
+            this.renderMode = renderMode;
+            renderSignal.notifyAll();
+        }
+    }
+
+    /**
+     * @return the mode set with {@link #setRenderMode}
+     */
+    public RenderMode getRenderMode() {
+        synchronized (renderSignal) {
+            return renderMode;
+        }
+    }
+
+    /**
+     * Makes the render thread produce a frame as soon as possible, even if it is sleeping
+     * in {@link RenderMode#ON_DEMAND} mode. It can be called from any thread.
+     */
+    public void requestRender() {
+        synchronized (renderSignal) {
+            renderRequested = true;
+            renderSignal.notifyAll();
+        }
+    }
+
+    /**
+     * Makes the render thread produce a frame after a delay, even if it is sleeping in
+     * {@link RenderMode#ON_DEMAND} mode. If a frame was already scheduled, the earliest
+     * time is kept. It can be called from any thread, for instance from
+     * {@link IEventProcessor#onUpdate} to wake up when a countdown must change. The time
+     * asleep while the frame is scheduled is included in the {@code deltaTime} of the next
+     * update, even if a touch event arrives first.
+     *
+     * @param delayMillis the delay in milliseconds
+     */
+    public void scheduleRender(long delayMillis) {
+        long time = System.nanoTime() + Math.max(0, delayMillis) * 1_000_000;
+        synchronized (renderSignal) {
+            if (renderTime == 0 || time < renderTime)
+                renderTime = time;
+            renderSignal.notifyAll();
+        }
+    }
+
+    /**
+     * Implementation of {@link SurfaceHolder.Callback#surfaceCreated}.
+     * @param holder the holder of the surface
+     */
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            surfaceReady = true;
+            fullRedrawNeeded = true;
+        }
+        requestRender();
+    }
+
+    /**
+     * Implementation of {@link SurfaceHolder.Callback#surfaceChanged}.
+     * @param holder the holder of the surface
+     * @param format the new format of the surface
+     * @param width the new width of the surface
+     * @param height the new height of the surface
+     */
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        fullRedrawNeeded = true;
+        requestRender();
+    }
+
+    /**
+     * Implementation of {@link SurfaceHolder.Callback#surfaceDestroyed}. When it returns,
+     * the render threads no longer draw on the surface.
+     * @param holder the holder of the surface
+     */
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            surfaceReady = false;
+        }
+    }
+
+    /**
+     * Wait until the surface is ready and, in {@link RenderMode#ON_DEMAND} mode, until a
+     * frame is requested.
+     * @return {@code false} if the view has been paused
+     */
+    private boolean awaitRenderRequest() {
+        boolean waited = false;
+        synchronized (renderSignal) {
+            while (running) {
+                long now = System.nanoTime();
+                boolean timerExpired = renderTime != 0 && now >= renderTime;
+                if (surfaceReady && (renderMode == RenderMode.CONTINUOUS || renderRequested || timerExpired)) {
+                    renderRequested = false;
+                    // With a timer, the game expects the time asleep to be counted
+                    wakeTime = waited && renderTime == 0 ? System.nanoTime() : 0;
+                    if (timerExpired)
+                        renderTime = 0;
+                    return true;
+                }
+                waited = true;
+                try {
+                    if (surfaceReady && renderTime != 0)
+                        renderSignal.wait(Math.max(1, (renderTime - now + 999_999) / 1_000_000));
+                    else
+                        renderSignal.wait();
+                } catch (InterruptedException ignored) { }
+            }
+            return false;
+        }
+    }
+
+    private void awaitSignal(long millis) {
+        synchronized (renderSignal) {
+            if (renderRequested || !running) {
+                renderRequested = false;
+                return;
+            }
+            try {
+                renderSignal.wait(millis);
+            } catch (InterruptedException ignored) { }
+            renderRequested = false;
+        }
+    }
+
+    private float getRefreshRate() {
+        Display display = getDisplay();
+        return display == null ? 0 : display.getRefreshRate();
     }
 
     /**
@@ -103,6 +590,16 @@ public class GameView extends SurfaceView implements Runnable {
      */
     public void onResume() {
         running = true;
+        requestRender();
+        FrameScheduler scheduler = frameScheduler;
+        if (scheduler != null)
+            scheduler.start(getRefreshRate());
+        activeCommandProvider = commandProvider;
+        if (activeCommandProvider != null) {
+            commandBuffers = new FrameExchanger<>(COMMAND_BUFFERS, DrawCommandBuffer::new);
+            presentThread = new Thread(this::present);
+            presentThread.start();
+        }
         renderThread = new Thread(this);
         renderThread.start();
     }
@@ -112,9 +609,26 @@ public class GameView extends SurfaceView implements Runnable {
      */
     public void onPause() {
         running = false;
+        synchronized (renderSignal) {
+            renderSignal.notifyAll();
+        }
+        FrameScheduler scheduler = frameScheduler;
+        if (scheduler != null)
+            scheduler.stop();
+        if (commandBuffers != null)
+            commandBuffers.close();
+        join(renderThread);
+        if (presentThread != null) {
+            join(presentThread);
+            presentThread = null;
+            commandBuffers = null;
+        }
+    }
+
+    private static void join(Thread thread) {
         while (true) {
             try {
-                renderThread.join();
+                thread.join();
                 return;
             } catch (InterruptedException ignored) {}
         }
@@ -122,37 +636,186 @@ public class GameView extends SurfaceView implements Runnable {
 
     /**
      * Implementation of the {@link Runnable#run} method. The run process keeps
-     * refreshing the view as fast as possible by calling the {@link IEventProcessor} to process
+     * refreshing the view as fast as possible, or at the pace of the display if
+     * {@link #setVsyncPacing} was used, by calling the {@link IEventProcessor} to process
      * the events and to get the bitmap to draw.
      *
      * If the bitmap returned by {@link IBitmapProvider#onDrawingRequested()} is null,
-     * there is no redraw of the screen. This can reduce battery consumption.
+     * there is no redraw of the screen. This can reduce battery consumption, specially
+     * in {@link RenderMode#ON_DEMAND} mode, where the thread then sleeps until it is
+     * needed again (see {@link #setRenderMode}).
+     *
+     * If a fixed update rate has been set with {@link #setFixedUpdateRate}, the touch
+     * events are passed to the first update of the frame and the others receive an empty list.
+     *
+     * If there is an {@link ICommandProvider}, the commands are recorded in this thread
+     * and drawn in the screen by another one.
      */
     @Override
     public void run() {
         Rect dstRect = new Rect();
         long startTime = System.nanoTime();
+        fullRedrawNeeded = true;
 
         while (running) {
-            if (!holder.getSurface().isValid())
+            if (!awaitRenderRequest())
+                break;
+            FrameScheduler scheduler = frameScheduler;
+            long now;
+            if (scheduler == null)
+                now = System.nanoTime();
+            else if ((now = scheduler.awaitFrame()) < 0) {
+                // Clear the interrupt that made it return, or the next call would return at once
+                Thread.interrupted();
+                requestRender(); // Do not lose the request if the pacing has changed
                 continue;
+            }
 
-            long now = System.nanoTime();
+            if (wakeTime != 0) // The time asleep is not passed to the game
+                startTime = Math.min(wakeTime, now);
             float deltaTime = (now - startTime) / 1000_000_000f;
             startTime = now;
 
-            eventProcessor.onUpdate(deltaTime, touchHandler.getTouchEvents());
-            Bitmap frameBuffer = bitmapProvider.onDrawingRequested();
-            if (frameBuffer == null) { // No need to update, sleep 10 milliseconds
-                try {
-                    Thread.sleep(10);
-                } catch (InterruptedException ignored) { }
-            } else {
-                Canvas canvas = holder.lockCanvas();
-                canvas.getClipBounds(dstRect);
-                canvas.drawBitmap(frameBuffer, null, dstRect, null);
-                holder.unlockCanvasAndPost(canvas);
+            FrameStats stats = frameStats;
+            if (stats != null)
+                stats.beginFrame();
+            workNanos = 0;
+            long phaseStart = System.nanoTime();
+            float alpha = gameLoop.update(deltaTime);
+            recordPhase(stats, FrameStats.Phase.UPDATE, phaseStart);
+
+            boolean drawn = activeCommandProvider != null
+                    ? recordFrame(alpha, stats)
+                    : drawFrame(gameLoop.isFixedRate(), alpha, dstRect, stats);
+            if (stats != null)
+                stats.endFrame();
+            ResolutionController controller = resolutionController;
+            if (drawn && controller != null)
+                controller.onFrame(workNanos / 1000_000f);
+            if (drawn)
+                requestRender(); // Keep producing frames while the game draws
+            else if (scheduler == null && getRenderMode() == RenderMode.CONTINUOUS)
+                awaitSignal(IDLE_WAIT_MILLIS); // No need to update, wait for a touch or 10 milliseconds
+        }
+    }
+
+    private boolean drawFrame(boolean fixedRate, float alpha, Rect dstRect, FrameStats stats) {
+        long phaseStart = System.nanoTime();
+        Bitmap frameBuffer = fixedRate
+                ? bitmapProvider.onDrawingRequested(alpha)
+                : bitmapProvider.onDrawingRequested();
+        if (frameBuffer == null) {
+            recordPhase(stats, FrameStats.Phase.DRAW_REQUEST, phaseStart);
+            return false;
+        }
+        boolean partial = bitmapProvider.onDirtyRegionRequested(dirtyRect) && !fullRedrawNeeded;
+        boolean whole = !bitmapProvider.onRenderRectRequested(srcRect);
+        if (whole)
+            srcRect.set(0, 0, frameBuffer.getWidth(), frameBuffer.getHeight());
+        phaseStart = recordPhase(stats, FrameStats.Phase.DRAW_REQUEST, phaseStart);
+        int width = srcRect.width(), height = srcRect.height();
+        matchSurfaceSize(width, height);
+        matchSurfaceFormat(frameBuffer);
+
+        synchronized (surfaceLock) { // The surface is not destroyed while drawing on it
+            if (!surfaceReady)
+                return true;
+            Canvas canvas;
+            if (partial) {
+                if (dirtyRect.isEmpty()) // Nothing has changed
+                    return false;
+                if (dirtyRect.width() * dirtyRect.height() > partialRedrawThreshold * width * height)
+                    canvas = holder.lockCanvas();
+                else {
+                    Rect surfaceFrame = holder.getSurfaceFrame();
+                    float scaleX = (float) surfaceFrame.width() / width,
+                            scaleY = (float) surfaceFrame.height() / height;
+                    dirtyRect.offset(-srcRect.left, -srcRect.top);
+                    dirtyRect.set((int) Math.floor(dirtyRect.left * scaleX), (int) Math.floor(dirtyRect.top * scaleY),
+                            (int) Math.ceil(dirtyRect.right * scaleX), (int) Math.ceil(dirtyRect.bottom * scaleY));
+                    canvas = holder.lockCanvas(dirtyRect);
+                }
+            } else
+                canvas = holder.lockCanvas();
+            phaseStart = recordPhase(stats, FrameStats.Phase.LOCK_CANVAS, phaseStart);
+            if (canvas == null)
+                return true;
+            fullRedrawNeeded = false;
+            presentPaint.setFilterBitmap(filterBitmap);
+            // Opaque frames are copied without blending
+            presentPaint.setXfermode(frameBuffer.hasAlpha() ? null : copyMode);
+            // The canvas is clipped to the region to update, so only that part is copied
+            if (whole && canvas.getWidth() == width && canvas.getHeight() == height)
+                canvas.drawBitmap(frameBuffer, 0, 0, presentPaint);
+            else {
+                dstRect.set(0, 0, canvas.getWidth(), canvas.getHeight());
+                canvas.drawBitmap(frameBuffer, srcRect, dstRect, presentPaint);
+            }
+            phaseStart = recordPhase(stats, FrameStats.Phase.BLIT, phaseStart);
+            holder.unlockCanvasAndPost(canvas);
+            recordPhase(stats, FrameStats.Phase.UNLOCK_AND_POST, phaseStart);
+            return true;
+        }
+    }
+
+    private long recordPhase(FrameStats stats, FrameStats.Phase phase, long phaseStart) {
+        long now = System.nanoTime();
+        // Waiting for the display is not work that a lower resolution would save
+        if (phase != FrameStats.Phase.LOCK_CANVAS && phase != FrameStats.Phase.UNLOCK_AND_POST)
+            workNanos += now - phaseStart;
+        if (stats != null)
+            stats.record(phase, now - phaseStart);
+        return now;
+    }
+
+    private boolean recordFrame(float alpha, FrameStats stats) {
+        long phaseStart = System.nanoTime();
+        DrawCommandBuffer buffer;
+        try {
+            buffer = commandBuffers.acquire();
+        } catch (InterruptedException e) {
+            return false;
+        }
+        if (buffer == null)
+            return true;
+        buffer.reset();
+        boolean recorded = activeCommandProvider.onRecordingRequested(buffer, alpha);
+        recordPhase(stats, FrameStats.Phase.DRAW_REQUEST, phaseStart);
+        if (recorded) {
+            commandBuffers.publish(buffer);
+            return true;
+        }
+        commandBuffers.release(buffer);
+        return false;
+    }
+
+    private void present() {
+        Paint paint = new Paint();
+        Rect src = new Rect(), dst = new Rect();
+        while (running) {
+            DrawCommandBuffer buffer;
+            try {
+                buffer = commandBuffers.take();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (buffer == null)
+                return;
+            synchronized (surfaceLock) {
+                if (surfaceReady && buffer.getWidth() > 0 && buffer.getHeight() > 0) {
+                    matchSurfaceSize(buffer.getWidth(), buffer.getHeight());
+                    Canvas canvas = holder.lockCanvas();
+                    if (canvas != null) {
+                        int saveCount = canvas.save();
+                        canvas.scale((float) canvas.getWidth() / buffer.getWidth(),
+                                (float) canvas.getHeight() / buffer.getHeight());
+                        buffer.replay(canvas, paint, src, dst);
+                        canvas.restoreToCount(saveCount);
+                        holder.unlockCanvasAndPost(canvas);
+                    }
+                }
             }
+            commandBuffers.release(buffer);
         }
     }
 }
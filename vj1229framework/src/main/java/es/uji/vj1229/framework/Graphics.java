@@ -9,6 +9,11 @@ import android.graphics.Rect;
 import android.graphics.Typeface;
 import android.graphics.drawable.Drawable;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * <p>A thin wrapper around a {@link Bitmap} to ease drawing with a {@link Canvas}
  * on it.</p>
@@ -16,6 +21,13 @@ import android.graphics.drawable.Drawable;
  * <p>The class keeps a {@link Bitmap}, a {@link Canvas}, and a {@link Paint} and
  * offers a simplified interface for drawing on the {@link Bitmap}.</p>
  *
+ * <p>In tiled mode (see {@link #setTiledRendering(int)}), the drawing operations are recorded
+ * and executed when the {@link Bitmap} is requested with {@link #getFrameBuffer()}. Then,
+ * the {@link Bitmap} is divided in horizontal bands that are drawn in parallel.</p>
+ *
+ * <p>With a render scale (see {@link #setRenderScale(float)}), the drawing operations keep
+ * their coordinates but only the upper left part of the {@link Bitmap} is drawn.</p>
+ *
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
  * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
  * "Beginning Android Games" of Mario Zechner and Robert Green</p>
@@ -28,6 +40,19 @@ public class Graphics {
     private final Canvas canvas;
     private final Paint paint;
     private int textColor;
+    private DrawCommandBuffer recording;
+    private final Rect dirty = new Rect();
+    private boolean dirtyTracking;
+    private final char[] numberBuffer = new char[32];
+    private final Rect src = new Rect(), dst = new Rect();
+    private final int[] clip = new int[Clipping.SIZE];
+    private final List<Layer> layers = new ArrayList<>();
+    private float renderScale = 1;
+
+    private static ForkJoinPool tilePool;
+    private DrawCommandBuffer tileCommands;
+    private BandRenderer[] bands;
+    private RecursiveAction drawBands;
 
     /**
      * The constructor.
@@ -36,20 +61,247 @@ public class Graphics {
      * @param height height of the bitmap to be created.
      */
     public Graphics(int width, int height) {
-        this.frameBuffer = Bitmap.createBitmap(width, height, ARGB_8888);
+        this(width, height, ARGB_8888, false);
+    }
+
+    /**
+     * Constructor for choosing the format of the underlying {@link Bitmap}. An opaque
+     * {@link Bitmap} can be copied to the screen without blending, and with
+     * {@link Bitmap.Config#RGB_565} it also uses half the memory. The {@link GameView} adapts
+     * the format of its surface to that of the {@link Bitmap}.
+     *
+     * @param width width of the bitmap to be created.
+     * @param height height of the bitmap to be created.
+     * @param config the format of the bitmap, {@link Bitmap.Config#RGB_565} is always opaque.
+     * @param opaque if true, the bitmap has no transparency, so the drawing operations must
+     *               cover it completely, for instance starting with {@link #clear(int)}.
+     */
+    public Graphics(int width, int height, Bitmap.Config config, boolean opaque) {
+        this.frameBuffer = Bitmap.createBitmap(width, height, config);
+        if (opaque)
+            frameBuffer.setHasAlpha(false);
         canvas = new Canvas(frameBuffer);
         paint = new Paint();
         setTextAlign(Paint.Align.LEFT);
         setTextSize(20);
         setTypeface(Typeface.DEFAULT_BOLD);
         setTextColor(0xffe0e0e0);
+        markAllDirty();
+    }
+
+    /**
+     * Start recording the drawing operations in a {@link DrawCommandBuffer} instead of
+     * executing them over the underlying {@link Bitmap}. The buffer is emptied and its
+     * dimensions are set to those of the {@link Bitmap}. Note that the changes made
+     * directly to the {@link Paint} returned by {@link #getPaint()} are not recorded.
+     * In tiled mode, the operations pending are executed first.
+     *
+     * @param buffer the buffer that will receive the commands.
+     */
+    public void startRecording(DrawCommandBuffer buffer) {
+        flushTiles();
+        buffer.begin(getWidth(), getHeight());
+        recording = buffer;
+    }
+
+    /**
+     * Stop recording the drawing operations, they will be executed over the underlying
+     * {@link Bitmap} again.
+     */
+    public void stopRecording() {
+        recording = null;
+        if (tileCommands != null)
+            startTileRecording();
+    }
+
+    /**
+     * Activate the tiled mode. The drawing operations are recorded and executed in parallel
+     * when {@link #getFrameBuffer()} is called, dividing the {@link Bitmap} in horizontal bands
+     * drawn by the threads of a pool shared by all the instances. It pays off when the frames
+     * are expensive to draw and the device has several cores. If the operations include a
+     * {@link Drawable}, the bands are drawn one after the other.
+     *
+     * @param nBands the number of bands, usually the number of cores.
+     */
+    public void setTiledRendering(int nBands) {
+        if (nBands < 1)
+            throw new IllegalArgumentException("At least one band is needed");
+        flushTiles();
+        bands = new BandRenderer[nBands];
+        for (int i = 0; i < nBands; i++)
+            bands[i] = new BandRenderer(i);
+        drawBands = new RecursiveAction() {
+            @Override
+            protected void compute() {
+                for (BandRenderer band : bands)
+                    band.reinitialize();
+                invokeAll(bands);
+            }
+        };
+        if (tileCommands == null)
+            tileCommands = new DrawCommandBuffer();
+        if (recording == null)
+            startTileRecording();
+    }
+
+    /**
+     * Deactivate the tiled mode. The pending operations are executed.
+     */
+    public void disableTiledRendering() {
+        flushTiles();
+        if (recording == tileCommands)
+            recording = null;
+        tileCommands = null;
+        bands = null;
+        drawBands = null;
+    }
+
+    /**
+     * @return the number of processors available, a reasonable number of bands for
+     * {@link #setTiledRendering(int)}.
+     */
+    public static int getAvailableProcessors() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
+    private static synchronized ForkJoinPool getTilePool() {
+        // ForkJoinPool.commonPool() needs API 24
+        if (tilePool == null)
+            tilePool = new ForkJoinPool(getAvailableProcessors());
+        return tilePool;
+    }
+
+    private void startTileRecording() {
+        tileCommands.begin(getWidth(), getHeight());
+        recording = tileCommands;
+    }
+
+    private void flushTiles() {
+        if (tileCommands == null || tileCommands.isEmpty())
+            return;
+        if (bands.length > 1 && tileCommands.isConcurrentReplaySafe())
+            getTilePool().invoke(drawBands);
+        else
+            for (BandRenderer band : bands)
+                band.compute();
+        tileCommands.begin(getWidth(), getHeight());
+        drawBands.reinitialize();
+    }
+
+    private class BandRenderer extends RecursiveAction {
+        private final int index;
+        private final Canvas bandCanvas = new Canvas(frameBuffer);
+        private final Paint bandPaint = new Paint();
+        private final Rect bandSrc = new Rect(), bandDst = new Rect();
+
+        BandRenderer(int index) {
+            this.index = index;
+        }
+
+        @Override
+        protected void compute() {
+            // The bands divide the part of the bitmap that is drawn
+            int height = scaled(getHeight());
+            bandCanvas.save();
+            bandCanvas.clipRect(0, index * height / bands.length,
+                    scaled(getWidth()), (index + 1) * height / bands.length);
+            if (renderScale != 1)
+                bandCanvas.scale(renderScale, renderScale);
+            tileCommands.replay(bandCanvas, bandPaint, bandSrc, bandDst);
+            bandCanvas.restore();
+        }
+    }
+
+    /**
+     * Set the fraction of the size of the underlying {@link Bitmap} at which the frames are
+     * drawn. The drawing operations keep using the coordinates of the whole {@link Bitmap},
+     * but they are scaled so that only its upper left part, returned by
+     * {@link #getRenderRect(Rect)}, is drawn. Drawing fewer pixels makes the frames cheaper
+     * when the game is limited by the fill rate. It is intended to be called at the
+     * beginning of a frame with the scale chosen by a {@link ResolutionController}.
+     * It does not affect the commands recorded with {@link #startRecording(DrawCommandBuffer)}.
+     *
+     * @param scale the scale, greater than 0 and at most 1.
+     */
+    public void setRenderScale(float scale) {
+        if (scale <= 0 || scale > 1)
+            throw new IllegalArgumentException("The scale must be in (0, 1]");
+        if (scale == renderScale)
+            return;
+        flushTiles();
+        renderScale = scale;
+        canvas.setMatrix(null);
+        if (scale != 1)
+            canvas.scale(scale, scale);
+        markAllDirty();
+    }
+
+    /**
+     * @return the scale set with {@link #setRenderScale(float)}.
+     */
+    public float getRenderScale() {
+        return renderScale;
+    }
+
+    /**
+     * Copy to {@code out} the part of the underlying {@link Bitmap} that is drawn with the
+     * current render scale. It is intended to implement
+     * {@link GameView.IBitmapProvider#onRenderRectRequested}.
+     *
+     * @param out the {@link Rect} that receives the part.
+     */
+    public void getRenderRect(Rect out) {
+        out.set(0, 0, scaled(getWidth()), scaled(getHeight()));
+    }
+
+    private int scaled(int size) {
+        return renderScale == 1 ? size : (int) Math.ceil(size * renderScale);
+    }
+
+    /**
+     * Copy to {@code out} the bounds of the region of the underlying {@link Bitmap}
+     * modified by the drawing operations since the previous call, and start collecting
+     * a new region. The first call after the construction returns the whole {@link Bitmap}.
+     * It is intended to implement {@link GameView.IBitmapProvider#onDirtyRegionRequested}.
+     * With a render scale, the region is scaled accordingly.
+     * The texts drawn with {@link #drawText(float, float, String)} are only measured to
+     * extend the region after the first call.
+     *
+     * @param out the {@link Rect} that receives the region. It is empty if nothing has been
+     *            drawn.
+     */
+    public void collectDirtyRegion(Rect out) {
+        dirtyTracking = true;
+        out.set(dirty);
+        if (renderScale != 1)
+            out.set((int) Math.floor(out.left * renderScale), (int) Math.floor(out.top * renderScale),
+                    (int) Math.ceil(out.right * renderScale), (int) Math.ceil(out.bottom * renderScale));
+        if (!out.intersect(0, 0, scaled(getWidth()), scaled(getHeight())))
+            out.setEmpty();
+        dirty.setEmpty();
+    }
+
+    /**
+     * Mark the whole underlying {@link Bitmap} as modified. It is useful after
+     * drawing on it without using the methods of this class, for instance with the
+     * {@link Paint} returned by {@link #getPaint()} on another {@link Canvas}.
+     */
+    public void markAllDirty() {
+        dirty.set(0, 0, getWidth(), getHeight());
+    }
+
+    private void markDirty(float left, float top, float right, float bottom) {
+        dirty.union((int) Math.floor(left), (int) Math.floor(top),
+                (int) Math.ceil(right), (int) Math.ceil(bottom));
     }
 
     /**
+     * In tiled mode, the pending operations are executed before returning the {@link Bitmap}.
      *
      * @return The {@link Bitmap} in its current state
      */
     public Bitmap getFrameBuffer() {
+        flushTiles();
         return frameBuffer;
     }
 
@@ -59,6 +311,11 @@ public class Graphics {
      * @param color the color un RGB format (24 bits).
      */
     public void clear(int color) {
+        markAllDirty();
+        if (recording != null) {
+            recording.clear(color);
+            return;
+        }
         canvas.drawRGB((color & 0xff0000) >> 16, (color & 0xff00) >> 8, color & 0xff);
     }
 
@@ -72,6 +329,13 @@ public class Graphics {
      * @param color the color in ARGB format (32 bits)
      */
     public void drawLine(float x1, float y1, float x2, float y2, float width, int color) {
+        float margin = width / 2 + 1;
+        markDirty(Math.min(x1, x2) - margin, Math.min(y1, y2) - margin,
+                Math.max(x1, x2) + margin, Math.max(y1, y2) + margin);
+        if (recording != null) {
+            recording.line(x1, y1, x2, y2, width, color);
+            return;
+        }
         paint.setColor(color);
         paint.setStrokeWidth(width);
         canvas.drawLine(x1, y1, x2, y2, paint);
@@ -87,11 +351,23 @@ public class Graphics {
      * @param color the color in ARGB format (32 bits)
      */
     public void drawRect(float x, float y, float width, float height, int color) {
+        markDirty(x, y, x + width, y + height);
+        if (recording != null) {
+            recording.rect(x, y, x + width - 1, y + height - 1, color);
+            return;
+        }
         paint.setColor(color);
         paint.setStyle(Paint.Style.FILL);
         canvas.drawRect(x, y, x + width - 1, y + height - 1, paint);
     }
 
+    /**
+     * @return {@code true} if the underlying {@link Bitmap} has no transparency.
+     */
+    public boolean isOpaque() {
+        return !frameBuffer.hasAlpha();
+    }
+
     /**
      *
      * @return The width of the underlying {@link Bitmap}
@@ -124,11 +400,13 @@ public class Graphics {
      * @param y the y coordinate of the upper left corner of {@code bitmap}
      */
     public void drawBitmap(Bitmap bitmap, float x, float y) {
-        canvas.drawBitmap(bitmap, x, y, null);
+        markDirty(x, y, x + bitmap.getWidth(), y + bitmap.getHeight());
+        if (recording != null)
+            recording.bitmap(bitmap, x, y);
+        else
+            canvas.drawBitmap(bitmap, x, y, null);
     }
 
-    private static final Rect src = new Rect(), dst = new Rect();
-
     /**
      * Draw a {@link Bitmap} over the underlying {@link Bitmap} clipping in the
      * horizontal axis.
@@ -140,14 +418,14 @@ public class Graphics {
      * @param maxX the maximum x coordinate of the image in the underlying bitmap
      */
     public void drawBitmap(Bitmap bitmap, float x, float y, float minX, float maxX) {
-        int leftDst = (int)Math.max(minX, x),
-                rightDst = (int) Math.min(maxX, x + bitmap.getWidth() - 1),
-                leftSrc = x >= minX ? 0 : (int) (minX - x),
-                rightSrc = leftSrc + rightDst - leftDst
-        ;
-        src.set( leftSrc,0, rightSrc, bitmap.getHeight());
-        dst.set(leftDst, (int)y, rightDst, (int)y + bitmap.getHeight());
-        canvas.drawBitmap(bitmap, src, dst, null);
+        Clipping.clipHorizontally(x, y, bitmap.getWidth(), bitmap.getHeight(), minX, maxX, clip);
+        drawClipped(bitmap);
+    }
+
+    private void drawClipped(Bitmap bitmap) {
+        src.set(clip[Clipping.SRC], clip[Clipping.SRC + 1], clip[Clipping.SRC + 2], clip[Clipping.SRC + 3]);
+        dst.set(clip[Clipping.DST], clip[Clipping.DST + 1], clip[Clipping.DST + 2], clip[Clipping.DST + 3]);
+        drawBitmap(bitmap, src, dst);
     }
 
     /**
@@ -159,7 +437,117 @@ public class Graphics {
      *            fit, it cannot be null
      */
     public void drawBitmap(Bitmap bitmap, Rect src, Rect dst) {
-        canvas.drawBitmap(bitmap, src, dst, null);
+        dirty.union(dst);
+        if (recording != null)
+            recording.bitmap(bitmap, src, dst);
+        else
+            canvas.drawBitmap(bitmap, src, dst, null);
+    }
+
+    /**
+     * Draw a {@link SpriteRegion} over the underlying {@link Bitmap} with its original size.
+     * @param region the region to draw
+     * @param x the x coordinate of the upper left corner of the region
+     * @param y the y coordinate of the upper left corner of the region
+     */
+    public void drawRegion(SpriteRegion region, float x, float y) {
+        drawRegion(region, x, y, region.getWidth(), region.getHeight());
+    }
+
+    /**
+     * Draw a {@link SpriteRegion} over the underlying {@link Bitmap} scaled to the given size.
+     * @param region the region to draw
+     * @param x the x coordinate of the upper left corner of the region
+     * @param y the y coordinate of the upper left corner of the region
+     * @param width the width of the region once drawn
+     * @param height the height of the region once drawn
+     */
+    public void drawRegion(SpriteRegion region, float x, float y, float width, float height) {
+        int left = region.getLeft(), top = region.getTop();
+        src.set(left, top, left + region.getWidth(), top + region.getHeight());
+        dst.set((int) x, (int) y, (int) (x + width), (int) (y + height));
+        drawBitmap(region.getBitmap(), src, dst);
+    }
+
+    /**
+     * Draw all the sprites of a {@link SpriteBatch} over the underlying {@link Bitmap}
+     * with as few calls to the {@link Canvas} as possible.
+     * @param batch the batch to draw
+     */
+    public void drawBatch(SpriteBatch batch) {
+        if (batch.getCount() == 0)
+            return;
+        markDirty(batch.getMinX(), batch.getMinY(), batch.getMaxX(), batch.getMaxY());
+        if (recording != null)
+            recording.batch(batch);
+        else
+            batch.draw(canvas, paint);
+    }
+
+    /**
+     * Add a {@link Layer} with the size of the underlying {@link Bitmap}. The layers are
+     * drawn by {@link #drawLayers()} in the order in which they were added.
+     * @param name the name of the layer, it must be unique
+     * @param renderer the object that draws the content of the layer
+     * @return the new layer
+     */
+    public Layer addLayer(String name, Layer.Renderer renderer) {
+        return addLayer(name, getWidth(), getHeight(), renderer);
+    }
+
+    /**
+     * Add a {@link Layer} with the given size. The layers are drawn by {@link #drawLayers()}
+     * in the order in which they were added.
+     * @param name the name of the layer, it must be unique
+     * @param width the width of the layer
+     * @param height the height of the layer
+     * @param renderer the object that draws the content of the layer
+     * @return the new layer
+     */
+    public Layer addLayer(String name, int width, int height, Layer.Renderer renderer) {
+        if (getLayer(name) != null)
+            throw new IllegalArgumentException("There is already a layer called " + name);
+        Layer layer = new Layer(name, width, height, renderer);
+        layers.add(layer);
+        return layer;
+    }
+
+    /**
+     * Return a {@link Layer} given its name.
+     * @param name the name of the layer
+     * @return the layer or {@code null} if there is no layer with that name
+     */
+    public Layer getLayer(String name) {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.getName().equals(name))
+                return layer;
+        }
+        return null;
+    }
+
+    /**
+     * Remove a {@link Layer} and recycle its {@link Bitmap}.
+     * @param name the name of the layer
+     */
+    public void removeLayer(String name) {
+        Layer layer = getLayer(name);
+        if (layer != null) {
+            layers.remove(layer);
+            layer.recycle();
+        }
+    }
+
+    /**
+     * Draw the visible {@link Layer}s over the underlying {@link Bitmap}, in the order in which
+     * they were added. The invalid layers are rendered again before drawing them.
+     */
+    public void drawLayers() {
+        for (int i = 0; i < layers.size(); i++) {
+            Layer layer = layers.get(i);
+            if (layer.isVisible())
+                layer.drawOn(this);
+        }
     }
 
     /**
@@ -173,16 +561,9 @@ public class Graphics {
      * @param height the height of the rectangle from {@code bitmap} which will be drawn
      */
     public void drawBitmap(Bitmap bitmap, float x, float y, float xb, float yb, float width, float height) {
-        int xi = (int) x;
-        int yi = (int) y;
-        int xbi = (int) xb;
-        int ybi = (int) yb;
-
-        int w = Math.min(frameBuffer.getWidth() - xi, (int)width);
-        int h = Math.min(frameBuffer.getHeight() - yi, (int)height);
-        src.set(xbi, ybi, xbi + w, ybi + h);
-        dst.set(xi, yi, xi + w, yi + h);
-        canvas.drawBitmap(bitmap, src, dst, null);
+        Clipping.clipToTarget(x, y, xb, yb, width, height,
+                frameBuffer.getWidth(), frameBuffer.getHeight(), clip);
+        drawClipped(bitmap);
     }
 
 
@@ -195,10 +576,120 @@ public class Graphics {
      * @param s the text
      */
     public void drawText(float x, float y, String s) {
+        if (dirtyTracking) { // Measuring the text is only worth it if the region is used
+            float width = paint.measureText(s);
+            float left = alignedStart(x, width);
+            markDirty(left - 1, y + paint.ascent() - 1, left + width + 1, y + paint.descent() + 1);
+        }
+        if (recording != null) {
+            recording.text(s, x, y, textColor, paint);
+            return;
+        }
         paint.setColor(textColor);
         canvas.drawText(s, x, y, paint);
     }
 
+    /**
+     * Draw a text with a {@link BitmapFont} in the given coordinates. The alignment of the
+     * text is the one set with {@link #setTextAlign(Paint.Align)}; the color, size and
+     * typeface are those of the font.
+     * @param font the font
+     * @param x the x coordinate of the origin of the text
+     * @param y the y coordinate of the baseline of the text
+     * @param text the text
+     */
+    public void drawText(BitmapFont font, float x, float y, CharSequence text) {
+        float pen = alignedStart(x, font.measure(text));
+        for (int i = 0; i < text.length(); i++)
+            pen = drawGlyph(font, pen, y, text.charAt(i));
+    }
+
+    /**
+     * Draw some characters with a {@link BitmapFont} in the given coordinates. The alignment
+     * of the text is the one set with {@link #setTextAlign(Paint.Align)}.
+     * @param font the font
+     * @param x the x coordinate of the origin of the text
+     * @param y the y coordinate of the baseline of the text
+     * @param chars the array containing the characters
+     * @param start the position of the first character to draw
+     * @param length the number of characters to draw
+     */
+    public void drawText(BitmapFont font, float x, float y, char[] chars, int start, int length) {
+        float pen = alignedStart(x, font.measure(chars, start, length));
+        for (int i = start; i < start + length; i++)
+            pen = drawGlyph(font, pen, y, chars[i]);
+    }
+
+    /**
+     * Draw an integer with a {@link BitmapFont} without creating any objects.
+     * @param font the font
+     * @param x the x coordinate of the origin of the number
+     * @param y the y coordinate of the baseline of the number
+     * @param value the number
+     */
+    public void drawInt(BitmapFont font, float x, float y, int value) {
+        drawText(font, x, y, numberBuffer, 0, BitmapFont.formatInt(value, numberBuffer));
+    }
+
+    /**
+     * Draw a float with a fixed number of decimals with a {@link BitmapFont} without
+     * creating any objects.
+     * @param font the font
+     * @param x the x coordinate of the origin of the number
+     * @param y the y coordinate of the baseline of the number
+     * @param value the number
+     * @param decimals the number of decimals, between 0 and 9
+     */
+    public void drawFloat(BitmapFont font, float x, float y, float value, int decimals) {
+        drawText(font, x, y, numberBuffer, 0, BitmapFont.formatFloat(value, decimals, numberBuffer));
+    }
+
+    /**
+     * Draw a table with the average and maximum times of each phase of a {@link FrameStats},
+     * in milliseconds, followed by the number of janky frames. It does not create objects, so
+     * it can be drawn every frame without disturbing the measures. The text should be
+     * aligned to the left.
+     * @param stats the statistics
+     * @param font the font
+     * @param x the x coordinate of the left of the table
+     * @param y the y coordinate of the top of the table
+     */
+    public void drawFrameStats(FrameStats stats, BitmapFont font, float x, float y) {
+        float lineHeight = font.getDescent() - font.getAscent();
+        float column = font.measure("frame ");
+        float numberWidth = font.measure("000.0 ");
+        float baseline = y - font.getAscent();
+        for (FrameStats.Phase phase : FrameStats.PHASES) {
+            drawText(font, x, baseline, phase.getLabel());
+            drawFloat(font, x + column, baseline, stats.getAverageMillis(phase), 1);
+            drawFloat(font, x + column + numberWidth, baseline, stats.getMaxMillis(phase), 1);
+            baseline += lineHeight;
+        }
+        drawText(font, x, baseline, "jank");
+        drawInt(font, x + column, baseline, (int) Math.min(stats.getJankFrames(), Integer.MAX_VALUE));
+    }
+
+    private float alignedStart(float x, float width) {
+        if (paint.getTextAlign() == Paint.Align.CENTER)
+            return x - width / 2;
+        if (paint.getTextAlign() == Paint.Align.RIGHT)
+            return x - width;
+        return x;
+    }
+
+    private float drawGlyph(BitmapFont font, float pen, float y, char c) {
+        int glyph = font.glyphIndex(c);
+        if (c != ' ') {
+            int left = font.getCellLeft(glyph), top = font.getCellTop(glyph);
+            int x = Math.round(pen) - font.getPadding();
+            int yTop = Math.round(y + font.getAscent()) - font.getPadding();
+            src.set(left, top, left + font.getCellWidth(), top + font.getCellHeight());
+            dst.set(x, yTop, x + font.getCellWidth(), yTop + font.getCellHeight());
+            drawBitmap(font.getAtlas(), src, dst);
+        }
+        return pen + font.getAdvance(glyph);
+    }
+
     /**
      * Sets the color used when drawing texts
      * @param textColor the new color
@@ -240,6 +731,11 @@ public class Graphics {
      * @param color the color in ARGB format (32 bits)
      */
     public void drawCircle(float x, float y, float r, int color) {
+        markDirty(x - r - 1, y - r - 1, x + r + 1, y + r + 1);
+        if (recording != null) {
+            recording.circle(x, y, r, color);
+            return;
+        }
         paint.setColor(color);
         paint.setStyle(Paint.Style.FILL);
         canvas.drawCircle(x, y, r, paint);
@@ -254,6 +750,11 @@ public class Graphics {
      * @param height the height of {@code drawable}
      */
     public void drawDrawable(Drawable drawable, float x, float y, float width, float height) {
+        markDirty(x, y, x + width, y + height);
+        if (recording != null) {
+            recording.drawable(drawable, (int)x, (int)y, (int)(x + width), (int)(y+height));
+            return;
+        }
         drawable.setBounds((int)x, (int)y, (int)(x + width), (int)(y+height));
         drawable.draw(canvas);
     }
@@ -262,6 +763,9 @@ public class Graphics {
      * Recycle the frameBuffer. The object can not be used after this.
      */
     public void recycle() {
+        for (int i = 0; i < layers.size(); i++)
+            layers.get(i).recycle();
+        layers.clear();
         frameBuffer.recycle();
     }
 }
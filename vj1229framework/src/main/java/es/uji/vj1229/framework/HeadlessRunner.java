@@ -0,0 +1,131 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Runs the updates of a game without a view, as fast as possible.</p>
+ * <p>The {@link IEventProcessor} or {@link IBatchEventProcessor} is set in the
+ * {@link GameLoop} returned by {@link #getGameLoop()}, which can also be given a
+ * {@link FixedTimeStep}. The frames can have a fixed duration ({@link #runFixed}), a list of
+ * durations ({@link #runDeltas}) or those of a {@link TouchRecording} ({@link #runRecording()}).
+ * In every case, the touch events of the recording set with {@link #setTouchRecording} are
+ * delivered in the frame in which they were recorded, so the runs are deterministic as long
+ * as the game is. It is intended for tests, soak tests and profiling of the game logic.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class HeadlessRunner {
+    private final Replay replay = new Replay();
+    private final GameLoop gameLoop;
+    private long elapsedNanos;
+
+    /**
+     * Constructor with room for {@link TouchHandler#DEFAULT_QUEUE_CAPACITY} events per frame.
+     */
+    public HeadlessRunner() {
+        this(TouchHandler.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructor.
+     * @param maxEventsPerFrame the maximum number of touch events passed to an update. The
+     *                          rest are passed in the following frames.
+     */
+    public HeadlessRunner(int maxEventsPerFrame) {
+        gameLoop = new GameLoop(replay, maxEventsPerFrame);
+    }
+
+    /**
+     * @return the {@link GameLoop} driven by the runner.
+     */
+    public GameLoop getGameLoop() {
+        return gameLoop;
+    }
+
+    /**
+     * Sets the recording whose touch events are fed to the game. The next run starts
+     * in its first frame.
+     * @param recording the recording or {@code null} for running without events.
+     */
+    public void setTouchRecording(TouchRecording recording) {
+        replay.recording = recording;
+        replay.frame = 0;
+        replay.nextEvent = 0;
+    }
+
+    /**
+     * Run a number of frames of the same duration.
+     * @param frames the number of frames.
+     * @param deltaTime the duration (in seconds) of each frame.
+     */
+    public void runFixed(int frames, float deltaTime) {
+        long start = System.nanoTime();
+        for (int i = 0; i < frames; i++)
+            runFrame(deltaTime);
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Run a frame for each of the durations given.
+     * @param deltaTimes the durations (in seconds) of the frames.
+     */
+    public void runDeltas(float[] deltaTimes) {
+        long start = System.nanoTime();
+        for (float deltaTime : deltaTimes)
+            runFrame(deltaTime);
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Run the remaining frames of the recording set with {@link #setTouchRecording}
+     * with their original durations.
+     */
+    public void runRecording() {
+        TouchRecording recording = replay.recording;
+        if (recording == null)
+            throw new IllegalStateException("There is no recording to run");
+        long start = System.nanoTime();
+        while (replay.frame < recording.getFrames())
+            runFrame(recording.getDeltaTime(replay.frame));
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    private void runFrame(float deltaTime) {
+        gameLoop.update(deltaTime);
+        replay.frame++;
+    }
+
+    /**
+     * @return the time spent running the frames, in nanoseconds.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the number of frames run per second of real time.
+     */
+    public float getFramesPerSecond() {
+        return elapsedNanos == 0 ? 0 : gameLoop.getFrames() * 1e9f / elapsedNanos;
+    }
+
+    private static class Replay implements GameLoop.ITouchEventSource {
+        TouchRecording recording;
+        int frame;
+        int nextEvent;
+
+        @Override
+        public void drainTouchEvents(TouchEventBatch batch) {
+            batch.clear();
+            if (recording == null || frame >= recording.getFrames())
+                return;
+            // The events of the frames without updates are delivered now
+            int end = recording.getFirstEvent(frame + 1);
+            while (nextEvent < end && !batch.isFull())
+                recording.copyEvent(nextEvent++, batch);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Finds which target, for instance a button or a sprite, is under a touch.</p>
+ * <p>The targets are rectangles or circles with a z-order, identified by the integer
+ * returned when they are added. They are kept in a uniform grid of square cells that covers
+ * the screen: each cell knows the targets that overlap it, so finding the target under a
+ * point only checks the few targets of its cell, however many there are. When a target moves,
+ * only the cells that it enters or leaves are updated.</p>
+ * <p>If the grid is set in the {@link GameView} with {@link GameView#setHitTargetGrid} (or in
+ * a {@link GameLoop}), the touch events arrive at the {@link IEventProcessor} with the target
+ * already resolved in {@link TouchHandler.TouchEvent#target} or
+ * {@link TouchEventBatch#target}. The grid is not thread safe, so it must be changed from the
+ * update thread, for instance in {@link IEventProcessor#onUpdate}. The identifiers of
+ * the removed targets are reused.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class HitTargetGrid {
+    /**
+     * The target of the events that do not hit any.
+     */
+    public static final int NO_TARGET = -1;
+
+    private static final int RECT = 0;
+    private static final int CIRCLE = 1;
+    private static final int ACTIVE = 1;
+    private static final int DISABLED = 2;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int INITIAL_CELL_CAPACITY = 4;
+
+    private final int width, height, cellSize;
+    private final int columns, rows;
+    private final int[][] cells;
+    private final int[] cellCounts;
+
+    private int[] shape = new int[INITIAL_CAPACITY];
+    private int[] z = new int[INITIAL_CAPACITY];
+    private int[] flags = new int[INITIAL_CAPACITY];
+    private float[] left = new float[INITIAL_CAPACITY];
+    private float[] top = new float[INITIAL_CAPACITY];
+    private float[] right = new float[INITIAL_CAPACITY];
+    private float[] bottom = new float[INITIAL_CAPACITY];
+    // The cells covered by each target, firstColumn is -1 if it is outside the grid
+    private int[] firstColumn = new int[INITIAL_CAPACITY];
+    private int[] lastColumn = new int[INITIAL_CAPACITY];
+    private int[] firstRow = new int[INITIAL_CAPACITY];
+    private int[] lastRow = new int[INITIAL_CAPACITY];
+    private int targets;
+    private int[] freeIds = new int[INITIAL_CAPACITY];
+    private int freeCount;
+
+    /**
+     * Constructor.
+     * @param width the width of the area covered, usually that of the screen.
+     * @param height the height of the area covered.
+     * @param cellSize the side of the cells, in the order of the size of the targets.
+     */
+    public HitTargetGrid(int width, int height, int cellSize) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("The dimensions must be positive");
+        if (cellSize <= 0)
+            throw new IllegalArgumentException("The size of the cells must be positive");
+        this.width = width;
+        this.height = height;
+        this.cellSize = cellSize;
+        columns = (width + cellSize - 1) / cellSize;
+        rows = (height + cellSize - 1) / cellSize;
+        cells = new int[columns * rows][];
+        cellCounts = new int[columns * rows];
+    }
+
+    /**
+     * Add a rectangular target.
+     * @param x the x coordinate of the upper left corner.
+     * @param y the y coordinate of the upper left corner.
+     * @param width the width of the rectangle.
+     * @param height the height of the rectangle.
+     * @param z the z-order, the targets with higher values hide the others.
+     * @return the identifier of the target.
+     */
+    public int addRect(float x, float y, float width, float height, int z) {
+        int id = newTarget(z);
+        setRect(id, x, y, width, height);
+        return id;
+    }
+
+    /**
+     * Add a circular target.
+     * @param x the x coordinate of the center.
+     * @param y the y coordinate of the center.
+     * @param radius the radius.
+     * @param z the z-order, the targets with higher values hide the others.
+     * @return the identifier of the target.
+     */
+    public int addCircle(float x, float y, float radius, int z) {
+        int id = newTarget(z);
+        setCircle(id, x, y, radius);
+        return id;
+    }
+
+    private int newTarget(int zOrder) {
+        int id;
+        if (freeCount > 0)
+            id = freeIds[--freeCount];
+        else {
+            if (targets == shape.length)
+                growTargets();
+            id = targets++;
+        }
+        flags[id] = ACTIVE;
+        z[id] = zOrder;
+        firstColumn[id] = -1;
+        return id;
+    }
+
+    /**
+     * Move a target and make it a rectangle.
+     * @param id the identifier of the target.
+     * @param x the x coordinate of the upper left corner.
+     * @param y the y coordinate of the upper left corner.
+     * @param width the width of the rectangle.
+     * @param height the height of the rectangle.
+     */
+    public void setRect(int id, float x, float y, float width, float height) {
+        checkTarget(id);
+        shape[id] = RECT;
+        place(id, x, y, x + width, y + height);
+    }
+
+    /**
+     * Move a target and make it a circle.
+     * @param id the identifier of the target.
+     * @param x the x coordinate of the center.
+     * @param y the y coordinate of the center.
+     * @param radius the radius.
+     */
+    public void setCircle(int id, float x, float y, float radius) {
+        checkTarget(id);
+        shape[id] = CIRCLE;
+        place(id, x - radius, y - radius, x + radius, y + radius);
+    }
+
+    /**
+     * Change the z-order of a target.
+     * @param id the identifier of the target.
+     * @param z the new z-order.
+     */
+    public void setZ(int id, int z) {
+        checkTarget(id);
+        this.z[id] = z;
+    }
+
+    /**
+     * Set whether a target can be hit. The disabled targets do not hide the ones below them.
+     * @param id the identifier of the target.
+     * @param enabled {@code false} to disable it.
+     */
+    public void setEnabled(int id, boolean enabled) {
+        checkTarget(id);
+        if (enabled)
+            flags[id] &= ~DISABLED;
+        else
+            flags[id] |= DISABLED;
+    }
+
+    /**
+     * @param id the identifier of the target.
+     * @return {@code true} if the target can be hit.
+     */
+    public boolean isEnabled(int id) {
+        checkTarget(id);
+        return (flags[id] & DISABLED) == 0;
+    }
+
+    /**
+     * Remove a target. Its identifier can be returned when adding another one.
+     * @param id the identifier of the target.
+     */
+    public void remove(int id) {
+        checkTarget(id);
+        unlink(id);
+        flags[id] = 0;
+        freeIds[freeCount++] = id;
+    }
+
+    /**
+     * @return the number of targets.
+     */
+    public int getTargetCount() {
+        return targets - freeCount;
+    }
+
+    /**
+     * Find the target under a point. If there are several, the one with the highest z-order
+     * is returned and, with the same z-order, the one with the highest identifier.
+     * @param x the x coordinate of the point.
+     * @param y the y coordinate of the point.
+     * @return the identifier of the target or {@link #NO_TARGET}.
+     */
+    public int hitTest(float x, float y) {
+        if (!(x >= 0 && x < width && y >= 0 && y < height))
+            return NO_TARGET;
+        int cell = (int) (y / cellSize) * columns + (int) (x / cellSize);
+        int[] candidates = cells[cell];
+        int best = NO_TARGET;
+        for (int i = 0; i < cellCounts[cell]; i++) {
+            int id = candidates[i];
+            if (flags[id] != ACTIVE || !contains(id, x, y))
+                continue;
+            if (best == NO_TARGET || z[id] > z[best] || (z[id] == z[best] && id > best))
+                best = id;
+        }
+        return best;
+    }
+
+    /**
+     * Fill {@link TouchEventBatch#target} with the target under each event of a batch.
+     * @param batch the batch.
+     */
+    public void resolve(TouchEventBatch batch) {
+        for (int i = 0; i < batch.count; i++)
+            batch.target[i] = hitTest(batch.x[i], batch.y[i]);
+    }
+
+    private boolean contains(int id, float x, float y) {
+        if (x < left[id] || x >= right[id] || y < top[id] || y >= bottom[id])
+            return false;
+        if (shape[id] == RECT)
+            return true;
+        float radius = (right[id] - left[id]) / 2;
+        float dx = x - (left[id] + radius), dy = y - (top[id] + radius);
+        return dx * dx + dy * dy <= radius * radius;
+    }
+
+    private void place(int id, float l, float t, float r, float b) {
+        left[id] = l;
+        top[id] = t;
+        right[id] = r;
+        bottom[id] = b;
+        int c0 = -1, c1 = -1, r0 = -1, r1 = -1;
+        if (r > 0 && b > 0 && l < width && t < height && l < r && t < b) {
+            c0 = cellOf(l, columns);
+            c1 = cellOf(r, columns);
+            r0 = cellOf(t, rows);
+            r1 = cellOf(b, rows);
+        }
+        // Only the targets that change their cells touch the grid
+        if (c0 == firstColumn[id] && c1 == lastColumn[id] && r0 == firstRow[id] && r1 == lastRow[id])
+            return;
+        unlink(id);
+        firstColumn[id] = c0;
+        lastColumn[id] = c1;
+        firstRow[id] = r0;
+        lastRow[id] = r1;
+        if (c0 < 0)
+            return;
+        for (int row = r0; row <= r1; row++)
+            for (int column = c0; column <= c1; column++)
+                addToCell(row * columns + column, id);
+    }
+
+    private int cellOf(float coordinate, int n) {
+        return Math.max(0, Math.min((int) (coordinate / cellSize), n - 1));
+    }
+
+    private void unlink(int id) {
+        if (firstColumn[id] < 0)
+            return;
+        for (int row = firstRow[id]; row <= lastRow[id]; row++)
+            for (int column = firstColumn[id]; column <= lastColumn[id]; column++)
+                removeFromCell(row * columns + column, id);
+        firstColumn[id] = -1;
+    }
+
+    private void addToCell(int cell, int id) {
+        int[] list = cells[cell];
+        if (list == null)
+            list = cells[cell] = new int[INITIAL_CELL_CAPACITY];
+        else if (cellCounts[cell] == list.length)
+            list = cells[cell] = copyOf(list, list.length * 2);
+        list[cellCounts[cell]++] = id;
+    }
+
+    private void removeFromCell(int cell, int id) {
+        int[] list = cells[cell];
+        int n = cellCounts[cell];
+        for (int i = 0; i < n; i++) {
+            if (list[i] == id) {
+                list[i] = list[n - 1];
+                cellCounts[cell] = n - 1;
+                return;
+            }
+        }
+    }
+
+    private void checkTarget(int id) {
+        if (id < 0 || id >= targets || (flags[id] & ACTIVE) == 0)
+            throw new IllegalArgumentException("There is no target " + id);
+    }
+
+    private void growTargets() {
+        int size = shape.length * 2;
+        shape = copyOf(shape, size);
+        z = copyOf(z, size);
+        flags = copyOf(flags, size);
+        left = copyOf(left, size);
+        top = copyOf(top, size);
+        right = copyOf(right, size);
+        bottom = copyOf(bottom, size);
+        firstColumn = copyOf(firstColumn, size);
+        lastColumn = copyOf(lastColumn, size);
+        firstRow = copyOf(firstRow, size);
+        lastRow = copyOf(lastRow, size);
+        freeIds = copyOf(freeIds, size);
+    }
+
+    private static int[] copyOf(int[] array, int length) {
+        int[] newArray = new int[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static float[] copyOf(float[] array, int length) {
+        float[] newArray = new float[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
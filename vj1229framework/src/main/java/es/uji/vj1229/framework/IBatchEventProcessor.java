@@ -0,0 +1,26 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>An alternative to {@link IEventProcessor} that receives the touch events in a
+ * {@link TouchEventBatch} instead of a {@link java.util.List} of
+ * {@link TouchHandler.TouchEvent}s, so that no objects are created or traversed with
+ * iterators when processing them.</p>
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public interface IBatchEventProcessor {
+    /**
+     * The method called by the {@link GameView} prior to the call to
+     * {@link es.uji.vj1229.framework.GameView.IBitmapProvider#onDrawingRequested}.
+     * It informs of the time passed
+     * since the last call and the touch events that have been detected.
+     * @param deltaTime the time (in seconds) since the last call
+     * @param touchEvents the events processed since the last call. The batch is reused
+     *                    in the next call, so it must not be kept.
+     */
+    void onUpdate(float deltaTime, TouchEventBatch touchEvents);
+}
@@ -5,7 +5,9 @@ import java.util.List;
 /**
  * <p>The interface for the object that processes the events of the {@link GameView}</p>
  * <p>This interface defines the method that must be implemented by the objects
- * processing the events captured by the {@link GameView} of the game.</p>
+ * processing the events captured by the {@link GameView} of the game.
+ * If the events have to be processed without creating objects, see
+ * {@link IBatchEventProcessor}.</p>
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
  * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
  * "Beginning Android Games" of Mario Zechner and Robert Green</p>
@@ -0,0 +1,183 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+
+/**
+ * <p>A layer of a scene with its own {@link Bitmap}, created with
+ * {@link Graphics#addLayer(String, Renderer)}.</p>
+ * <p>The content of the layer is drawn by its {@link Renderer} only when the layer is
+ * invalid, that is, when it has just been created or after a call to {@link #invalidate()}.
+ * Otherwise, {@link Graphics#drawLayers()} just copies the {@link Bitmap} of the layer. This
+ * suits the parts of the scene that seldom change, like the backgrounds or the frame of
+ * the HUD. The layer can be scrolled without drawing it again and, if it wraps, it is
+ * repeated to cover the whole frame.</p>
+ * <p>If the frames are recorded in a {@link DrawCommandBuffer}, the layers must not be
+ * invalidated while the buffer is pending, since the buffer refers to their {@link Bitmap}s.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class Layer {
+    /**
+     * The interface for drawing the content of a layer.
+     */
+    public interface Renderer {
+        /**
+         * Draw the content of the layer. The {@link Bitmap} is transparent when this is called.
+         * @param graphics the {@link Graphics} of the layer.
+         */
+        void onRender(Graphics graphics);
+    }
+
+    private final String name;
+    private final Graphics graphics;
+    private final Renderer renderer;
+    private boolean invalid = true;
+    private boolean visible = true;
+    private boolean wrap;
+    private float scrollX, scrollY;
+
+    Layer(String name, int width, int height, Renderer renderer) {
+        this.name = name;
+        this.graphics = new Graphics(width, height);
+        this.renderer = renderer;
+    }
+
+    /**
+     * @return the name of the layer.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the {@link Graphics} of the layer.
+     */
+    public Graphics getGraphics() {
+        return graphics;
+    }
+
+    /**
+     * Mark the layer so that it is drawn again by its {@link Renderer} the next time
+     * that it is needed.
+     */
+    public void invalidate() {
+        invalid = true;
+    }
+
+    /**
+     * @return {@code true} if the layer has to be drawn again.
+     */
+    public boolean isInvalid() {
+        return invalid;
+    }
+
+    /**
+     * Set whether the layer is drawn by {@link Graphics#drawLayers()}.
+     * @param visible the new visibility.
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * @return {@code true} if the layer is drawn by {@link Graphics#drawLayers()}.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Set whether the layer is repeated in both axes to cover the frame.
+     * @param wrap the new value.
+     */
+    public void setWrap(boolean wrap) {
+        this.wrap = wrap;
+    }
+
+    /**
+     * Set the scroll of the layer. The point {@code (x, y)} of the layer is drawn in
+     * the upper left corner of the frame.
+     * @param x the horizontal scroll.
+     * @param y the vertical scroll.
+     */
+    public void setScroll(float x, float y) {
+        scrollX = x;
+        scrollY = y;
+    }
+
+    /**
+     * Increase the scroll of the layer.
+     * @param dx the increment of the horizontal scroll.
+     * @param dy the increment of the vertical scroll.
+     */
+    public void scroll(float dx, float dy) {
+        scrollX += dx;
+        scrollY += dy;
+        if (wrap) {
+            scrollX %= graphics.getWidth();
+            scrollY %= graphics.getHeight();
+        }
+    }
+
+    /**
+     * @return the horizontal scroll.
+     */
+    public float getScrollX() {
+        return scrollX;
+    }
+
+    /**
+     * @return the vertical scroll.
+     */
+    public float getScrollY() {
+        return scrollY;
+    }
+
+    /**
+     * Draw the layer with its {@link Renderer} if it is invalid.
+     */
+    void render() {
+        if (!invalid)
+            return;
+        Bitmap bitmap = graphics.getFrameBuffer();
+        bitmap.eraseColor(0);
+        renderer.onRender(graphics);
+        invalid = false;
+    }
+
+    /**
+     * Draw the layer over another {@link Graphics}, rendering it first if needed.
+     * @param target the {@link Graphics} to draw on.
+     */
+    void drawOn(Graphics target) {
+        render();
+        Bitmap bitmap = graphics.getFrameBuffer();
+        if (!wrap) {
+            target.drawBitmap(bitmap, -scrollX, -scrollY);
+            return;
+        }
+        int width = bitmap.getWidth(), height = bitmap.getHeight();
+        float startX = -positiveModulo(scrollX, width);
+        float startY = -positiveModulo(scrollY, height);
+        for (float y = startY; y < target.getHeight(); y += height)
+            for (float x = startX; x < target.getWidth(); x += width)
+                target.drawBitmap(bitmap, x, y);
+    }
+
+    private static float positiveModulo(float value, int size) {
+        float m = value % size;
+        return m < 0 ? m + size : m;
+    }
+
+    /**
+     * Recycle the {@link Bitmap} of the layer. The layer can not be used after this.
+     */
+    public void recycle() {
+        graphics.recycle();
+    }
+}
@@ -1,7 +1,9 @@
 package es.uji.vj1229.framework;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * <p>Generic class to keep a pool of objects.</p>
@@ -10,6 +12,16 @@ import java.util.List;
  * <p>Objects can be obtained by a call to {@link Pool#newObject} and released
  * by a call to {@link Pool#free}. The objects released are stored in a list that is used
  * when new object are requested.</p>
+ * <p>The pool keeps statistics of its use: the requests served from the list ({@link #getHits()}),
+ * the objects created ({@link #getMisses()}), the objects discarded because the list was
+ * full ({@link #getDiscards()}) and the maximum number of objects in use at the same time
+ * ({@link #getHighWaterMark()}). They can be used to choose the size of the pool and the
+ * number of objects to create in advance with {@link #prewarm(int)}.</p>
+ * <p>The pool is not thread safe, see {@link ConcurrentPool} for objects shared by
+ * several threads.</p>
+ * <p>While developing, {@link #enableDebug(boolean)} makes the pool check that the objects
+ * freed were obtained from it and not freed already, and keep track of the objects that
+ * have not been returned. The checks have no cost when they are not enabled.</p>
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
  * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
  * "Beginning Android Games" of Mario Zechner and Robert Green</p>
@@ -34,6 +46,10 @@ public class Pool<T> {
     private final List<T> freeObjects;
     private final PoolObjectFactory<T> factory;
     private final int maxSize;
+    private long hits, misses, discards;
+    private int inUse, highWaterMark;
+    private IdentityHashMap<T, Throwable> outstanding;
+    private boolean captureAllocationSites;
 
     /**
      * The constructor of the pool
@@ -54,10 +70,18 @@ public class Pool<T> {
     public T newObject() {
         T object;
 
-        if (freeObjects.isEmpty())
+        if (freeObjects.isEmpty()) {
             object = factory.createObject();
-        else
+            misses++;
+        } else {
             object = freeObjects.remove(freeObjects.size() - 1);
+            hits++;
+        }
+        if (++inUse > highWaterMark)
+            highWaterMark = inUse;
+        if (outstanding != null)
+            outstanding.put(object, captureAllocationSites
+                    ? new Throwable("Object obtained from the pool here") : null);
         return object;
     }
 
@@ -66,7 +90,116 @@ public class Pool<T> {
      * @param object the object to be freed
      */
     public void free(T object) {
+        if (outstanding != null)
+            checkFree(object);
+        if (inUse > 0)
+            inUse--;
         if (freeObjects.size() < maxSize)
             freeObjects.add(object);
+        else
+            discards++;
+    }
+
+    private void checkFree(T object) {
+        if (outstanding.containsKey(object)) {
+            outstanding.remove(object);
+            return;
+        }
+        for (int i = 0; i < freeObjects.size(); i++)
+            if (freeObjects.get(i) == object)
+                throw new IllegalStateException("The object " + object + " has been freed twice");
+        throw new IllegalStateException("The object " + object + " was not obtained from this pool or has already been freed");
+    }
+
+    /**
+     * <p>Enable the debug mode. From now on, {@link #free} throws an
+     * {@link IllegalStateException} when the object has already been freed or was not
+     * obtained from the pool, and the objects obtained and not freed can be
+     * consulted with {@link #getOutstandingObjects()}.</p>
+     * <p>It must be called before obtaining objects from the pool, the objects
+     * obtained before are considered foreign.</p>
+     * @param captureAllocationSites if {@code true}, the stack trace of each call to
+     *                               {@link #newObject()} is recorded. This is slow and
+     *                               creates objects, but shows where the leaked objects come from.
+     */
+    public void enableDebug(boolean captureAllocationSites) {
+        if (outstanding == null)
+            outstanding = new IdentityHashMap<>();
+        this.captureAllocationSites = captureAllocationSites;
+    }
+
+    /**
+     * Disable the debug mode and forget the objects being tracked.
+     */
+    public void disableDebug() {
+        outstanding = null;
+    }
+
+    /**
+     * Return the objects obtained from the pool and not freed since the debug mode
+     * was enabled. If they are not freed when expected, they are leaks.
+     * @return a new map from each object to a {@link Throwable} with the stack trace of the
+     * call to {@link #newObject()} that obtained it, or to {@code null} if the allocation sites
+     * are not being captured. It is empty if the debug mode is not enabled.
+     */
+    public Map<T, Throwable> getOutstandingObjects() {
+        if (outstanding == null)
+            return new IdentityHashMap<>();
+        return new IdentityHashMap<>(outstanding);
+    }
+
+    /**
+     * Create objects in advance so that there are at least {@code count} objects in
+     * the list of free objects, without exceeding the maximum size of the pool.
+     * It is intended to be called while loading, to avoid creating objects during the game.
+     * @param count the desired number of free objects
+     */
+    public void prewarm(int count) {
+        int target = Math.min(count, maxSize);
+        while (freeObjects.size() < target)
+            freeObjects.add(factory.createObject());
+    }
+
+    /**
+     * @return the number of objects in the list of free objects
+     */
+    public int getFreeCount() {
+        return freeObjects.size();
+    }
+
+    /**
+     * @return the number of calls to {@link #newObject()} served from the list of free objects
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of calls to {@link #newObject()} that had to create an object
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of objects not kept by {@link #free} because the pool was full
+     */
+    public long getDiscards() {
+        return discards;
+    }
+
+    /**
+     * @return the maximum number of objects obtained and not yet freed at the same time
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Set all the statistics to zero. The objects currently in use are still counted.
+     */
+    public void resetStatistics() {
+        hits = misses = discards = 0;
+        highWaterMark = inUse;
     }
 }
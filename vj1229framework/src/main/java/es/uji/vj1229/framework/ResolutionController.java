@@ -0,0 +1,118 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Chooses the scale at which the frames are rendered from the time that they take.</p>
+ * <p>The controller receives the time spent in each frame, usually from the {@link GameView}
+ * (see {@link GameView#setResolutionController}), and averages it over windows of frames.
+ * When the average of a window exceeds the upper threshold of the frame budget, the scale
+ * decreases one step; when it stays below the lower threshold for several windows in a row,
+ * it increases one step. The gap between both thresholds and the extra windows needed to
+ * increase the scale keep it from oscillating.</p>
+ * <p>The scale is applied with {@link Graphics#setRenderScale(float)} at the beginning of each
+ * frame. Then, only part of the {@link android.graphics.Bitmap} is drawn and the
+ * {@link GameView} scales that part to the screen.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class ResolutionController {
+    private static final int WINDOWS_TO_INCREASE = 3;
+
+    private final float minScale, maxScale, step;
+    private final int windowSize;
+    private float budgetMillis = 1000f / 60;
+    private float lowerThreshold = 0.7f, upperThreshold = 0.95f;
+    private float scale;
+    private float sum;
+    private int count;
+    private int fastWindows;
+
+    /**
+     * Constructor. The scale starts at its maximum.
+     * @param minScale the minimum scale, greater than 0.
+     * @param maxScale the maximum scale, usually 1.
+     * @param step the change of the scale in each adjustment.
+     * @param windowSize the number of frames averaged before each adjustment.
+     */
+    public ResolutionController(float minScale, float maxScale, float step, int windowSize) {
+        if (minScale <= 0 || minScale > maxScale)
+            throw new IllegalArgumentException("The scales must satisfy 0 < minScale <= maxScale");
+        if (step <= 0)
+            throw new IllegalArgumentException("The step must be positive");
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("The size of the window must be positive");
+        this.minScale = minScale;
+        this.maxScale = maxScale;
+        this.step = step;
+        this.windowSize = windowSize;
+        scale = maxScale;
+    }
+
+    /**
+     * Set the target duration of a frame. The default value corresponds to 60 frames
+     * per second.
+     * @param millis the budget in milliseconds.
+     */
+    public void setFrameBudget(float millis) {
+        budgetMillis = millis;
+    }
+
+    /**
+     * Set the fractions of the budget that trigger the adjustments. The default values are
+     * 0.7 and 0.95.
+     * @param lower the scale increases when the frames take less than this fraction.
+     * @param upper the scale decreases when the frames take more than this fraction.
+     */
+    public void setThresholds(float lower, float upper) {
+        if (lower <= 0 || lower >= upper)
+            throw new IllegalArgumentException("The thresholds must satisfy 0 < lower < upper");
+        lowerThreshold = lower;
+        upperThreshold = upper;
+    }
+
+    /**
+     * Add the time of a frame.
+     * @param frameMillis the time spent in the frame, in milliseconds.
+     * @return {@code true} if the scale has changed.
+     */
+    public boolean onFrame(float frameMillis) {
+        sum += frameMillis;
+        if (++count < windowSize)
+            return false;
+        float average = sum / count;
+        sum = 0;
+        count = 0;
+        float previous = scale;
+        if (average > upperThreshold * budgetMillis) {
+            fastWindows = 0;
+            scale = Math.max(minScale, scale - step);
+        } else if (average < lowerThreshold * budgetMillis) {
+            if (++fastWindows >= WINDOWS_TO_INCREASE) {
+                fastWindows = 0;
+                scale = Math.min(maxScale, scale + step);
+            }
+        } else
+            fastWindows = 0;
+        return scale != previous;
+    }
+
+    /**
+     * @return the current scale.
+     */
+    public float getScale() {
+        return scale;
+    }
+
+    /**
+     * Go back to the maximum scale and forget the frames added.
+     */
+    public void reset() {
+        scale = maxScale;
+        sum = 0;
+        count = fastWindows = 0;
+    }
+}
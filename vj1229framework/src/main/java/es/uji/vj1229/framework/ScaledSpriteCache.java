@@ -0,0 +1,141 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.util.LruCache;
+
+/**
+ * <p>A cache of the scaled sprites created by {@link SpriteSheet}s.</p>
+ * <p>The sprites are identified by the {@link Bitmap} of the sheet, the cell they occupy
+ * and the size they were scaled to. The cache has a budget in bytes, measured with
+ * {@link Bitmap#getAllocationByteCount()}; when it is exceeded, the least recently used
+ * sprites are removed. The removed sprites are not recycled, since they may still be in use,
+ * for instance as frames of an {@link AnimatedBitmap}; they are freed by the garbage
+ * collector when they are no longer referenced.</p>
+ * <p>The cache is used by the {@link SpriteSheet}s given to it with
+ * {@link SpriteSheet#setScaledSpriteCache(ScaledSpriteCache)}. A single cache can
+ * be shared by several sheets.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class ScaledSpriteCache {
+    private static final class Key {
+        final Bitmap sheet;
+        final int left, top, cellWidth, cellHeight, width, height;
+
+        Key(Bitmap sheet, int left, int top, int cellWidth, int cellHeight, int width, int height) {
+            this.sheet = sheet;
+            this.left = left;
+            this.top = top;
+            this.cellWidth = cellWidth;
+            this.cellHeight = cellHeight;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key))
+                return false;
+            Key other = (Key) o;
+            return sheet == other.sheet && left == other.left && top == other.top
+                    && cellWidth == other.cellWidth && cellHeight == other.cellHeight
+                    && width == other.width && height == other.height;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = System.identityHashCode(sheet);
+            hash = 31 * hash + left;
+            hash = 31 * hash + top;
+            hash = 31 * hash + cellWidth;
+            hash = 31 * hash + cellHeight;
+            hash = 31 * hash + width;
+            return 31 * hash + height;
+        }
+    }
+
+    private final LruCache<Key, Bitmap> cache;
+
+    /**
+     * Constructor.
+     * @param maxBytes the maximum number of bytes occupied by the sprites in the cache.
+     */
+    public ScaledSpriteCache(int maxBytes) {
+        cache = new LruCache<Key, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Key key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * Return a scaled sprite, creating it if it is not in the cache. The sprites bigger than
+     * the budget are created but not kept.
+     * @param sheet the {@link SpriteSheet} containing the sprite.
+     * @param row the row of the sprite.
+     * @param col the column of the sprite.
+     * @param width the width of the scaled sprite.
+     * @param height the height of the scaled sprite.
+     * @return the scaled sprite. It belongs to the cache, so it must not be recycled.
+     */
+    public Bitmap get(SpriteSheet sheet, int row, int col, int width, int height) {
+        int cellWidth = sheet.getCellWidth(), cellHeight = sheet.getCellHeight();
+        Key key = new Key(sheet.getSheet(), col * cellWidth, row * cellHeight,
+                cellWidth, cellHeight, width, height);
+        Bitmap bitmap = cache.get(key);
+        if (bitmap == null) {
+            bitmap = sheet.createScaledSprite(row, col, width, height);
+            if (bitmap.getAllocationByteCount() <= cache.maxSize())
+                cache.put(key, bitmap);
+        }
+        return bitmap;
+    }
+
+    /**
+     * @return the number of requests served from the cache.
+     */
+    public int getHitCount() {
+        return cache.hitCount();
+    }
+
+    /**
+     * @return the number of requests that needed to create the sprite.
+     */
+    public int getMissCount() {
+        return cache.missCount();
+    }
+
+    /**
+     * @return the number of sprites removed to respect the budget.
+     */
+    public int getEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * @return the number of bytes occupied by the sprites in the cache.
+     */
+    public int getSizeInBytes() {
+        return cache.size();
+    }
+
+    /**
+     * @return the maximum number of bytes occupied by the sprites in the cache.
+     */
+    public int getMaxSizeInBytes() {
+        return cache.maxSize();
+    }
+
+    /**
+     * Remove all the sprites from the cache.
+     */
+    public void clear() {
+        cache.evictAll();
+    }
+}
@@ -0,0 +1,227 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapShader;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Shader;
+
+/**
+ * <p>A set of sprites of the same {@link Bitmap} that are drawn together.</p>
+ * <p>Drawing thousands of sprites with one call per sprite spends most of the time in
+ * the calls themselves. A batch stores the position, the source rectangle, the scale and
+ * the opacity of each sprite in arrays of floats and {@link Graphics#drawBatch(SpriteBatch)}
+ * draws all of them as a triangle mesh textured with the {@link Bitmap}, using a single
+ * call to {@link Canvas#drawVertices} for up to {@value #MAX_SPRITES_PER_CALL} sprites.</p>
+ * <p>The batch is meant to be filled every frame: {@link #clear()} it and {@link #add} the
+ * sprites. Once the arrays have grown to the number of sprites used, no objects are created.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class SpriteBatch {
+    /**
+     * The maximum number of sprites drawn with a single call. The indices of the vertices
+     * are {@code short}s, so bigger batches are split.
+     */
+    public static final int MAX_SPRITES_PER_CALL = 8191;
+
+    private static final short[] INDICES = new short[MAX_SPRITES_PER_CALL * 6];
+
+    static {
+        for (int i = 0, v = 0; i < INDICES.length; i += 6, v += 4) {
+            INDICES[i] = (short) v;
+            INDICES[i + 1] = (short) (v + 1);
+            INDICES[i + 2] = (short) (v + 2);
+            INDICES[i + 3] = (short) v;
+            INDICES[i + 4] = (short) (v + 2);
+            INDICES[i + 5] = (short) (v + 3);
+        }
+    }
+
+    private Bitmap sheet;
+    private BitmapShader shader;
+    private float[] vertices;
+    private float[] textureCoordinates;
+    private int[] colors;
+    private int count;
+    private boolean translucent;
+    private float minX, minY, maxX, maxY;
+
+    /**
+     * Constructor.
+     * @param sheet the {@link Bitmap} containing the sprites.
+     * @param capacity the initial number of sprites. The batch grows if needed.
+     */
+    public SpriteBatch(Bitmap sheet, int capacity) {
+        this.sheet = sheet;
+        shader = newShader(sheet);
+        capacity = Math.max(capacity, 1);
+        vertices = new float[capacity * 8];
+        textureCoordinates = new float[capacity * 8];
+        colors = new int[capacity * 4];
+        clear();
+    }
+
+    /**
+     * @return the {@link Bitmap} containing the sprites.
+     */
+    public Bitmap getSheet() {
+        return sheet;
+    }
+
+    /**
+     * @return the number of sprites in the batch.
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Remove all the sprites.
+     */
+    public void clear() {
+        count = 0;
+        translucent = false;
+        minX = minY = Float.POSITIVE_INFINITY;
+        maxX = maxY = Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * Add a sprite with its original size.
+     * @param region the region of the sprite. Its {@link Bitmap} must be the sheet of the batch.
+     * @param x the x coordinate of the upper left corner of the sprite.
+     * @param y the y coordinate of the upper left corner of the sprite.
+     */
+    public void add(SpriteRegion region, float x, float y) {
+        if (region.getBitmap() != sheet)
+            throw new IllegalArgumentException("The region does not belong to the sheet of the batch");
+        add(x, y, region.getLeft(), region.getTop(), region.getWidth(), region.getHeight(), 1, 1);
+    }
+
+    /**
+     * Add a sprite.
+     * @param x the x coordinate of the upper left corner of the sprite.
+     * @param y the y coordinate of the upper left corner of the sprite.
+     * @param srcLeft the x coordinate of the sprite in the sheet.
+     * @param srcTop the y coordinate of the sprite in the sheet.
+     * @param srcWidth the width of the sprite in the sheet.
+     * @param srcHeight the height of the sprite in the sheet.
+     * @param scale the scale applied to the sprite when drawing it.
+     * @param alpha the opacity of the sprite, between 0 (transparent) and 1 (opaque).
+     */
+    public void add(float x, float y, int srcLeft, int srcTop, int srcWidth, int srcHeight,
+                    float scale, float alpha) {
+        if (count * 4 == colors.length)
+            grow();
+        float right = x + srcWidth * scale, bottom = y + srcHeight * scale;
+        int srcRight = srcLeft + srcWidth, srcBottom = srcTop + srcHeight;
+        int v = count * 8;
+        setPair(vertices, v, x, y);
+        setPair(vertices, v + 2, right, y);
+        setPair(vertices, v + 4, right, bottom);
+        setPair(vertices, v + 6, x, bottom);
+        setPair(textureCoordinates, v, srcLeft, srcTop);
+        setPair(textureCoordinates, v + 2, srcRight, srcTop);
+        setPair(textureCoordinates, v + 4, srcRight, srcBottom);
+        setPair(textureCoordinates, v + 6, srcLeft, srcBottom);
+        int color = Math.round(Math.max(0, Math.min(alpha, 1)) * 255) << 24 | 0xffffff;
+        int c = count * 4;
+        colors[c] = colors[c + 1] = colors[c + 2] = colors[c + 3] = color;
+        if (alpha < 1)
+            translucent = true;
+        minX = Math.min(minX, Math.min(x, right));
+        minY = Math.min(minY, Math.min(y, bottom));
+        maxX = Math.max(maxX, Math.max(x, right));
+        maxY = Math.max(maxY, Math.max(y, bottom));
+        count++;
+    }
+
+    // The shader is created here and not when drawing, since several threads can draw a batch
+    private static BitmapShader newShader(Bitmap sheet) {
+        return new BitmapShader(sheet, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP);
+    }
+
+    private static void setPair(float[] array, int index, float a, float b) {
+        array[index] = a;
+        array[index + 1] = b;
+    }
+
+    private void grow() {
+        vertices = copyOf(vertices, vertices.length * 2);
+        textureCoordinates = copyOf(textureCoordinates, textureCoordinates.length * 2);
+        int[] newColors = new int[colors.length * 2];
+        System.arraycopy(colors, 0, newColors, 0, colors.length);
+        colors = newColors;
+    }
+
+    private static float[] copyOf(float[] array, int length) {
+        float[] newArray = new float[length];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    float getMinX() {
+        return minX;
+    }
+
+    float getMinY() {
+        return minY;
+    }
+
+    float getMaxX() {
+        return maxX;
+    }
+
+    float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Make this batch a copy of another one, reusing its arrays when possible.
+     * @param other the batch to copy.
+     */
+    void set(SpriteBatch other) {
+        if (sheet != other.sheet) {
+            sheet = other.sheet;
+            shader = other.shader;
+        }
+        while (colors.length < other.count * 4)
+            grow();
+        System.arraycopy(other.vertices, 0, vertices, 0, other.count * 8);
+        System.arraycopy(other.textureCoordinates, 0, textureCoordinates, 0, other.count * 8);
+        System.arraycopy(other.colors, 0, colors, 0, other.count * 4);
+        count = other.count;
+        translucent = other.translucent;
+        minX = other.minX;
+        minY = other.minY;
+        maxX = other.maxX;
+        maxY = other.maxY;
+    }
+
+    /**
+     * Draw the sprites over a {@link Canvas}. It can be called from several threads at the
+     * same time with different {@link Paint}s, as the bands of the tiled mode of
+     * {@link Graphics} do.
+     * @param canvas the {@link Canvas}.
+     * @param paint the {@link Paint} used for drawing. Its color is changed.
+     */
+    void draw(Canvas canvas, Paint paint) {
+        if (count == 0)
+            return;
+        paint.setColor(0xffffffff);
+        paint.setShader(shader);
+        for (int first = 0; first < count; first += MAX_SPRITES_PER_CALL) {
+            int sprites = Math.min(MAX_SPRITES_PER_CALL, count - first);
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, sprites * 8,
+                    vertices, first * 8, textureCoordinates, first * 8,
+                    translucent ? colors : null, first * 4,
+                    INDICES, 0, sprites * 6, paint);
+        }
+        paint.setShader(null);
+    }
+}
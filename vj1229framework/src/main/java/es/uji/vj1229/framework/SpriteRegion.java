@@ -0,0 +1,80 @@
+package es.uji.vj1229.framework;
+
+import android.graphics.Bitmap;
+
+/**
+ * <p>A rectangular region of a {@link Bitmap}, normally a sprite of a {@link SpriteSheet}.</p>
+ * <p>Regions are lightweight: they keep a reference to the {@link Bitmap} and the
+ * coordinates of the rectangle, without copying any pixels. They are drawn with
+ * {@link Graphics#drawRegion(SpriteRegion, float, float)}.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class SpriteRegion {
+    private final Bitmap bitmap;
+    private final int left, top, width, height;
+
+    /**
+     * Constructor.
+     * @param bitmap the {@link Bitmap} containing the region.
+     * @param left the x coordinate of the upper left corner of the region.
+     * @param top the y coordinate of the upper left corner of the region.
+     * @param width the width of the region.
+     * @param height the height of the region.
+     */
+    public SpriteRegion(Bitmap bitmap, int left, int top, int width, int height) {
+        this.bitmap = bitmap;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Constructor for a region covering a whole {@link Bitmap}.
+     * @param bitmap the {@link Bitmap}.
+     */
+    public SpriteRegion(Bitmap bitmap) {
+        this(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight());
+    }
+
+    /**
+     * @return the {@link Bitmap} containing the region.
+     */
+    public Bitmap getBitmap() {
+        return bitmap;
+    }
+
+    /**
+     * @return the x coordinate of the upper left corner of the region.
+     */
+    public int getLeft() {
+        return left;
+    }
+
+    /**
+     * @return the y coordinate of the upper left corner of the region.
+     */
+    public int getTop() {
+        return top;
+    }
+
+    /**
+     * @return the width of the region.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return the height of the region.
+     */
+    public int getHeight() {
+        return height;
+    }
+}
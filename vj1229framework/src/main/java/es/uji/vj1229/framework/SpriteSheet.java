@@ -8,7 +8,8 @@ import android.graphics.Matrix;
  * <p>The sprite sheet is a {@link Bitmap} that is assumed to have several rows and columns
  * of smaller images (sprites) contained in cells of a fixed width and height. Convenience
  * methods are provided to
- * recover either individual images or entire rows.</p>
+ * recover either individual images or entire rows, either as new {@link Bitmap}s
+ * or as {@link SpriteRegion}s that share the pixels of the sheet.</p>
  * <p>It is assumed that the first cell of the first row is in coordinates {@code (0,0)} of
  * the {@link Bitmap}. The different rows may have different number of columns.</p>
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
@@ -24,6 +25,7 @@ public class SpriteSheet {
     private final int cellWidth;
     private final int rows;
     private final int columns;
+    private ScaledSpriteCache scaledSpriteCache;
 
     /**
      * Constructor.
@@ -40,6 +42,61 @@ public class SpriteSheet {
         columns = sheet.getWidth() / cellWidth;
     }
 
+    /**
+     * Sets a cache for the scaled sprites. When there is a cache, {@link #getScaledSprite}
+     * and {@link #getScaledRow} look for the sprites there before scaling them, and the
+     * {@link Bitmap}s they return belong to the cache, so they must not be recycled.
+     * @param scaledSpriteCache the cache or {@code null} to create new sprites in each call.
+     */
+    public void setScaledSpriteCache(ScaledSpriteCache scaledSpriteCache) {
+        this.scaledSpriteCache = scaledSpriteCache;
+    }
+
+    /**
+     * @return the {@link Bitmap} containing the sprites.
+     */
+    public Bitmap getSheet() {
+        return sheet;
+    }
+
+    /**
+     * @return the width of the cell of an individual sprite.
+     */
+    public int getCellWidth() {
+        return cellWidth;
+    }
+
+    /**
+     * @return the height of the cell of an individual sprite.
+     */
+    public int getCellHeight() {
+        return cellHeight;
+    }
+
+    /**
+     * Return the region of the sheet occupied by the sprite in a given row and column.
+     * No pixels are copied.
+     * @param row the row.
+     * @param col the column.
+     * @return the {@link SpriteRegion} of the sprite.
+     */
+    public SpriteRegion getRegion(int row, int col) {
+        return new SpriteRegion(sheet, col * cellWidth, row * cellHeight, cellWidth, cellHeight);
+    }
+
+    /**
+     * Return the regions of the given number of columns from a row. No pixels are copied.
+     * @param row the row to get the sprites.
+     * @param nColumns the number of columns to return.
+     * @return An array containing the {@link SpriteRegion}s of the sprites.
+     */
+    public SpriteRegion[] getRegionRow(int row, int nColumns) {
+        SpriteRegion[] regions = new SpriteRegion[nColumns];
+        for (int col = 0; col < nColumns; col++)
+            regions[col] = getRegion(row, col);
+        return regions;
+    }
+
     /**
      * Return the given number of columns from a row, scaled to the given width
      * and height.
@@ -48,10 +105,16 @@ public class SpriteSheet {
      * @param width the desired width.
      * @param height the desired height.
      * @return An array containing the {@link Bitmap} of the sprites. These bitmaps are created
-     * and they have to be recycled if needed.
+     * and they have to be recycled if needed, unless there is a {@link ScaledSpriteCache}.
      */
     public Bitmap[] getScaledRow(int row, int nColumns, int width, int height) {
         Bitmap[] bitmaps = new Bitmap[nColumns];
+        if (scaledSpriteCache != null) {
+            for (int col = 0 ; col < nColumns ; col++)
+                bitmaps[col] = scaledSpriteCache.get(this, row, col, width, height);
+            return bitmaps;
+        }
+
         Matrix scaleMatrix = new Matrix();
         scaleMatrix.postScale((float)width/cellWidth, (float)height/cellHeight);
 
@@ -82,10 +145,16 @@ public class SpriteSheet {
      * @param col the column.
      * @param width the new width.
      * @param height the new height.
-     * @return A newly created {@link Bitmap} containing the desired sprite.
+     * @return A {@link Bitmap} containing the desired sprite. It is newly created unless
+     * there is a {@link ScaledSpriteCache}.
      */
-
     public Bitmap getScaledSprite(int row, int col, int width, int height) {
+        if (scaledSpriteCache != null)
+            return scaledSpriteCache.get(this, row, col, width, height);
+        return createScaledSprite(row, col, width, height);
+    }
+
+    Bitmap createScaledSprite(int row, int col, int width, int height) {
         Matrix scaleMatrix = new Matrix();
         scaleMatrix.postScale((float)width/cellWidth, (float)height/cellHeight);
 
@@ -0,0 +1,101 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>A reusable set of touch events stored as parallel arrays of primitive types.</p>
+ * <p>The event {@code i}, for {@code 0 <= i < count}, has type {@code type[i]},
+ * coordinates {@code x[i]} and {@code y[i]}, finger {@code pointer[i]} and time
+ * {@code time[i]}. The types are the ordinals of {@link TouchHandler.TouchType}, also
+ * available as the constants of {@link TouchEventQueue}. If a {@link HitTargetGrid} is in
+ * use, {@code target[i]} is the target hit by the event. The batch is filled by
+ * {@link TouchHandler#drainTouchEvents(TouchEventBatch)} without creating objects.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class TouchEventBatch {
+    /**
+     * The types of the events.
+     */
+    public final int[] type;
+    /**
+     * The x coordinates of the events.
+     */
+    public final int[] x;
+    /**
+     * The y coordinates of the events.
+     */
+    public final int[] y;
+    /**
+     * The fingers of the events.
+     */
+    public final int[] pointer;
+    /**
+     * The times of the events, in milliseconds since the boot of the device.
+     */
+    public final long[] time;
+    /**
+     * The targets hit by the events, or {@link HitTargetGrid#NO_TARGET}. They are filled by
+     * {@link HitTargetGrid#resolve(TouchEventBatch)}.
+     */
+    public final int[] target;
+    /**
+     * The number of events in the batch.
+     */
+    public int count;
+
+    /**
+     * Constructor.
+     * @param capacity the maximum number of events in the batch.
+     */
+    public TouchEventBatch(int capacity) {
+        type = new int[capacity];
+        x = new int[capacity];
+        y = new int[capacity];
+        pointer = new int[capacity];
+        time = new long[capacity];
+        target = new int[capacity];
+    }
+
+    /**
+     * @return the maximum number of events in the batch.
+     */
+    public int getCapacity() {
+        return type.length;
+    }
+
+    /**
+     * @return {@code true} if the batch cannot hold more events.
+     */
+    public boolean isFull() {
+        return count == type.length;
+    }
+
+    /**
+     * Remove all the events.
+     */
+    public void clear() {
+        count = 0;
+    }
+
+    /**
+     * Add an event at the end of the batch, without target. It must not be full.
+     * @param type the type of the event.
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param pointer the finger.
+     * @param time the time in milliseconds.
+     */
+    public void add(int type, int x, int y, int pointer, long time) {
+        int i = count++;
+        this.type[i] = type;
+        this.x[i] = x;
+        this.y[i] = y;
+        this.pointer[i] = pointer;
+        this.time[i] = time;
+        this.target[i] = HitTargetGrid.NO_TARGET;
+    }
+}
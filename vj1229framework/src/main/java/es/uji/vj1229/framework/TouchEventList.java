@@ -0,0 +1,49 @@
+package es.uji.vj1229.framework;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Converts {@link TouchEventBatch}es into lists of {@link TouchHandler.TouchEvent}s for the
+ * {@link IEventProcessor}s. The events are taken from a {@link Pool} and returned to it
+ * when the list is filled again.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+class TouchEventList {
+    private static final TouchHandler.TouchType[] TOUCH_TYPES = TouchHandler.TouchType.values();
+
+    private final Pool<TouchHandler.TouchEvent> pool;
+    private final List<TouchHandler.TouchEvent> events = new ArrayList<>();
+
+    TouchEventList(int capacity) {
+        pool = new Pool<>(TouchHandler.TouchEvent::new, capacity);
+    }
+
+    /**
+     * Replace the events of the list with those of a batch.
+     * @param batch the batch.
+     * @return the list.
+     */
+    List<TouchHandler.TouchEvent> fill(TouchEventBatch batch) {
+        for (int i = 0; i < events.size(); i++)
+            pool.free(events.get(i));
+        events.clear();
+        for (int i = 0; i < batch.count; i++) {
+            TouchHandler.TouchEvent touchEvent = pool.newObject();
+            touchEvent.type = TOUCH_TYPES[batch.type[i]];
+            touchEvent.x = batch.x[i];
+            touchEvent.y = batch.y[i];
+            touchEvent.pointer = batch.pointer[i];
+            touchEvent.time = batch.time[i];
+            touchEvent.target = batch.target[i];
+            events.add(touchEvent);
+        }
+        return events;
+    }
+}
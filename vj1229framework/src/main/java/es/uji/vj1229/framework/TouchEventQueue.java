@@ -0,0 +1,327 @@
+package es.uji.vj1229.framework;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>A lock-free queue of touch events for one producer thread and one consumer thread.</p>
+ * <p>The events are stored in preallocated arrays of primitive types organized as a ring
+ * of fixed capacity, so neither {@link #offer} nor {@link #poll()} block or create objects.
+ * When the queue is full, the {@link OverflowPolicy} decides which events are lost; the
+ * number of lost events is available through {@link #getDroppedEvents()} and
+ * {@link #getCoalescedEvents()}.</p>
+ * <p>The types of the events are the ordinals of {@link TouchHandler.TouchType}.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class TouchEventQueue {
+    /**
+     * What to do when an event arrives and the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * The oldest event in the queue is discarded.
+         */
+        DROP_OLDEST,
+        /**
+         * The drag events are kept apart, one per pointer, and only the last one is
+         * added when the next event arrives and there is room, or taken by the consumer
+         * when it empties the queue. The other events discard the oldest one.
+         */
+        COALESCE_DRAGS
+    }
+
+    /**
+     * The type of the down events, the ordinal of {@link TouchHandler.TouchType#TOUCH_DOWN}.
+     */
+    public static final int TOUCH_DOWN = 0;
+    /**
+     * The type of the up events, the ordinal of {@link TouchHandler.TouchType#TOUCH_UP}.
+     */
+    public static final int TOUCH_UP = 1;
+    /**
+     * The type of the drag events, the ordinal of {@link TouchHandler.TouchType#TOUCH_DRAGGED}.
+     */
+    public static final int TOUCH_DRAGGED = 2;
+
+    // The same as TouchHandler.MAX_TOUCH_POINTS, without depending on the Android classes
+    private static final int MAX_PENDING_POINTERS = 10;
+    // The state of a pending drag: two flags and a version that changes with each drag
+    private static final long WRITING = 1;
+    private static final long PENDING = 2;
+    private static final long FLAGS = WRITING | PENDING;
+    private static final long VERSION = 4;
+
+    private final int mask;
+    private final OverflowPolicy policy;
+    private final int[] types, xs, ys, pointers;
+    private final long[] times;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    // Only modified by the producer
+    private volatile long droppedEvents;
+    private volatile long coalescedEvents;
+    private final int[] pendingX = new int[MAX_PENDING_POINTERS];
+    private final int[] pendingY = new int[MAX_PENDING_POINTERS];
+    private final long[] pendingTime = new long[MAX_PENDING_POINTERS];
+    // The pointers that may have a pending drag, the consumer can take it without telling
+    private int pendingPointers;
+
+    // The producer writes the pending drags as a seqlock and both threads take them with a
+    // compare and set, so each one is delivered once
+    private final AtomicLongArray pendingState = new AtomicLongArray(MAX_PENDING_POINTERS);
+
+    // Only modified by the consumer
+    private int type, x, y, pointer;
+    private long time;
+
+    /**
+     * Constructor.
+     * @param capacity the maximum number of events in the queue. It is rounded up to
+     *                 a power of two.
+     * @param policy what to do when the queue is full.
+     */
+    public TouchEventQueue(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity)
+            size <<= 1;
+        mask = size - 1;
+        this.policy = policy;
+        types = new int[size];
+        xs = new int[size];
+        ys = new int[size];
+        pointers = new int[size];
+        times = new long[size];
+    }
+
+    /**
+     * @return the capacity of the queue.
+     */
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Add an event to the queue. It must only be called from the producer thread.
+     * @param type the type of the event.
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param pointer the identifier of the finger.
+     * @param time the time of the event in milliseconds.
+     */
+    public void offer(int type, int x, int y, int pointer, long time) {
+        if (pendingPointers != 0)
+            flushPending(type == TOUCH_DRAGGED ? -1 : pointer);
+        if (isFull()) {
+            if (policy == OverflowPolicy.COALESCE_DRAGS && type == TOUCH_DRAGGED
+                    && pointer >= 0 && pointer < MAX_PENDING_POINTERS) {
+                storePending(x, y, pointer, time);
+                return;
+            }
+            dropOldest();
+        }
+        publish(type, x, y, pointer, time);
+    }
+
+    private void storePending(int x, int y, int pointer, long time) {
+        long state;
+        do {
+            state = pendingState.get(pointer);
+        } while (!pendingState.compareAndSet(pointer, state, state | WRITING));
+        if ((state & PENDING) != 0)
+            coalescedEvents++;
+        pendingX[pointer] = x;
+        pendingY[pointer] = y;
+        pendingTime[pointer] = time;
+        pendingState.set(pointer, ((state & ~FLAGS) + VERSION) | PENDING);
+        pendingPointers |= 1 << pointer;
+    }
+
+    private void flushPending(int discardedPointer) {
+        for (int p = 0; p < MAX_PENDING_POINTERS && pendingPointers != 0; p++) {
+            if ((pendingPointers & (1 << p)) == 0)
+                continue;
+            if (p != discardedPointer && discardedPointer < 0 && isFull())
+                continue; // Still no room for the drag
+            pendingPointers &= ~(1 << p);
+            long state = pendingState.get(p);
+            if ((state & PENDING) == 0 || !pendingState.compareAndSet(p, state, state & ~PENDING))
+                continue; // The consumer took it
+            if (p == discardedPointer) // The new event of this pointer supersedes the drag
+                coalescedEvents++;
+            else {
+                if (isFull())
+                    dropOldest();
+                publish(TOUCH_DRAGGED, pendingX[p], pendingY[p], p, pendingTime[p]);
+            }
+        }
+    }
+
+    private boolean isFull() {
+        return tail.get() - head.get() > mask;
+    }
+
+    private void dropOldest() {
+        long h = head.get();
+        // If the consumer took the event first, there is room anyway
+        if (tail.get() - h > mask && head.compareAndSet(h, h + 1))
+            droppedEvents++;
+    }
+
+    private void publish(int type, int x, int y, int pointer, long time) {
+        long t = tail.get();
+        int index = (int) t & mask;
+        types[index] = type;
+        xs[index] = x;
+        ys[index] = y;
+        pointers[index] = pointer;
+        times[index] = time;
+        tail.lazySet(t + 1);
+    }
+
+    /**
+     * Remove the oldest event from the queue. Its fields can be consulted with
+     * {@link #getType()}, {@link #getX()}, {@link #getY()}, {@link #getPointer()} and
+     * {@link #getTime()} until the next call. It must only be called from the consumer thread.
+     * @return {@code true} if there was an event.
+     */
+    public boolean poll() {
+        while (true) {
+            long h = head.get();
+            if (h >= tail.get()) {
+                int p = availablePending();
+                if (p < 0)
+                    return false;
+                if (takePending(p))
+                    return true;
+                continue;
+            }
+            int index = (int) h & mask;
+            type = types[index];
+            x = xs[index];
+            y = ys[index];
+            pointer = pointers[index];
+            time = times[index];
+            // If the producer dropped this event while it was read, the values are discarded
+            if (head.compareAndSet(h, h + 1))
+                return true;
+        }
+    }
+
+    private int availablePending() {
+        for (int p = 0; p < MAX_PENDING_POINTERS; p++) {
+            if ((pendingState.get(p) & FLAGS) == PENDING)
+                return p;
+        }
+        return -1;
+    }
+
+    // The pending drags are newer than the events in the ring, so they are taken when it is
+    // empty. If the producer changes the drag while it is read, the version does not match.
+    private boolean takePending(int p) {
+        long state = pendingState.get(p);
+        int px = pendingX[p];
+        int py = pendingY[p];
+        long ptime = pendingTime[p];
+        if ((state & FLAGS) != PENDING || head.get() < tail.get()
+                || !pendingState.compareAndSet(p, state, state & ~PENDING))
+            return false;
+        type = TOUCH_DRAGGED;
+        x = px;
+        y = py;
+        pointer = p;
+        time = ptime;
+        return true;
+    }
+
+    /**
+     * Move the events from the queue to a batch, replacing its contents, until the batch
+     * is full or the queue is empty. It must only be called from the consumer thread.
+     * @param batch the batch that receives the events.
+     * @param coalesceDrags if {@code true}, consecutive drag events of the same finger, with
+     *                      at most drag events of other fingers between them, are merged
+     *                      into one with the last position. It takes the place of the last
+     *                      one, so the events stay in the order of their times.
+     */
+    public void drainTo(TouchEventBatch batch, boolean coalesceDrags) {
+        batch.clear();
+        while (!batch.isFull() && poll()) {
+            if (coalesceDrags && type == TOUCH_DRAGGED)
+                removeDrag(batch, pointer);
+            batch.add(type, x, y, pointer, time);
+        }
+    }
+
+    // Only the drags at the end of the batch are searched, at most one per finger
+    private static void removeDrag(TouchEventBatch batch, int pointer) {
+        for (int i = batch.count - 1; i >= 0 && batch.type[i] == TOUCH_DRAGGED; i--) {
+            if (batch.pointer[i] != pointer)
+                continue;
+            int moved = batch.count - 1 - i;
+            System.arraycopy(batch.x, i + 1, batch.x, i, moved);
+            System.arraycopy(batch.y, i + 1, batch.y, i, moved);
+            System.arraycopy(batch.pointer, i + 1, batch.pointer, i, moved);
+            System.arraycopy(batch.time, i + 1, batch.time, i, moved);
+            batch.count--;
+            return;
+        }
+    }
+
+    /**
+     * @return the type of the last event obtained with {@link #poll()}.
+     */
+    public int getType() {
+        return type;
+    }
+
+    /**
+     * @return the x coordinate of the last event obtained with {@link #poll()}.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return the y coordinate of the last event obtained with {@link #poll()}.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return the finger of the last event obtained with {@link #poll()}.
+     */
+    public int getPointer() {
+        return pointer;
+    }
+
+    /**
+     * @return the time in milliseconds of the last event obtained with {@link #poll()}.
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * @return the number of events discarded because the queue was full.
+     */
+    public long getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    /**
+     * @return the number of drag events replaced by a later event of the same finger
+     * because the queue was full.
+     */
+    public long getCoalescedEvents() {
+        return coalescedEvents;
+    }
+}
@@ -3,7 +3,6 @@ package es.uji.vj1229.framework;
 import android.view.MotionEvent;
 import android.view.View;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -12,6 +11,10 @@ import java.util.List;
  * <p>Its main use is to process the touch events in the {@link GameView} so that they are
  * passed on to the corresponding {@link IEventProcessor}.
  * </p>
+ * <p>The events go from the UI thread to the thread that calls {@link #getTouchEvents()}
+ * through a lock-free {@link TouchEventQueue}, so none of them blocks the other. If the
+ * events arrive faster than they are consumed and the queue gets full, some of them are lost
+ * according to the {@link TouchEventQueue.OverflowPolicy}.</p>
  * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
  * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
  * "Beginning Android Games" of Mario Zechner and Robert Green</p>
@@ -19,7 +22,7 @@ import java.util.List;
  * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
  * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
  */
-public class TouchHandler implements View.OnTouchListener {
+public class TouchHandler implements View.OnTouchListener, GameLoop.ITouchEventSource {
     /**
      * The types of touch that can be detected.
      */
@@ -54,6 +57,15 @@ public class TouchHandler implements View.OnTouchListener {
          * The index of the finger.
          */
         public int pointer;
+        /**
+         * The time of the event, in milliseconds since the boot of the device.
+         */
+        public long time;
+        /**
+         * The identifier of the target hit by the event in the {@link HitTargetGrid}
+         * of the {@link GameView}, or {@link HitTargetGrid#NO_TARGET}.
+         */
+        public int target;
     }
 
     /**
@@ -61,27 +73,41 @@ public class TouchHandler implements View.OnTouchListener {
      */
     public static final int MAX_TOUCH_POINTS = 10;
 
+    /**
+     * The default capacity of the queue of events.
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
     private final boolean[] isTouched = new boolean[MAX_TOUCH_POINTS];
     private final int[] touchX = new int[MAX_TOUCH_POINTS];
     private final int[] touchY = new int[MAX_TOUCH_POINTS];
     private final int[] id = new int[MAX_TOUCH_POINTS];
-    private final Pool<TouchEvent> touchEventPool;
-    private final List<TouchEvent> touchEvents = new ArrayList<>();
-    private final List<TouchEvent> touchEventsBuffer = new ArrayList<>();
+    private final TouchEventList touchEvents;
+    private final TouchEventQueue queue;
+    private final TouchEventBatch batch;
+    private volatile boolean historicalSamples;
+    private volatile boolean dragCoalescing;
+    private volatile Runnable eventListener;
 
     /**
-     * Construct the handler and attach to the given {@link View}.
+     * Construct the handler and attach to the given {@link View}. The queue of events
+     * has the default capacity and discards the oldest events when it is full.
      * @param view the view to attach the handler to.
      */
     public TouchHandler(View view) {
-        Pool.PoolObjectFactory<TouchEvent> factory = new Pool.PoolObjectFactory<TouchEvent>() {
-            @Override
-            public TouchEvent createObject() {
-                return new TouchEvent();
-            }
-        };
-
-        touchEventPool = new Pool<>(factory, 100);
+        this(view, DEFAULT_QUEUE_CAPACITY, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * Construct the handler and attach to the given {@link View}.
+     * @param view the view to attach the handler to.
+     * @param queueCapacity the maximum number of events waiting to be consumed.
+     * @param overflowPolicy what to do with the events that arrive when the queue is full.
+     */
+    public TouchHandler(View view, int queueCapacity, TouchEventQueue.OverflowPolicy overflowPolicy) {
+        queue = new TouchEventQueue(queueCapacity, overflowPolicy);
+        batch = new TouchEventBatch(queue.getCapacity());
+        touchEvents = new TouchEventList(queue.getCapacity());
         view.setOnTouchListener(this);
     }
 
@@ -93,60 +119,100 @@ public class TouchHandler implements View.OnTouchListener {
      */
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-        synchronized (this) {
-            int action = event.getActionMasked();
-            int pointerIndex = event.getActionIndex();
-            int pointerCount = event.getPointerCount();
-
-            int pointerId;
-            switch (action) {
-                case MotionEvent.ACTION_DOWN:
-                case MotionEvent.ACTION_POINTER_DOWN:
-                    pointerId = event.getPointerId(pointerIndex);
-                    registerEvent(event, pointerIndex, pointerId, TouchType.TOUCH_DOWN);
-                    break;
-                case MotionEvent.ACTION_UP:
-                case MotionEvent.ACTION_POINTER_UP:
-                    pointerId = event.getPointerId(pointerIndex);
-                    registerEvent(event, pointerIndex, pointerId, TouchType.TOUCH_UP);
-                    break;
-                case MotionEvent.ACTION_MOVE:
-                    for (int i = 0 ; i < pointerCount ; i++ ) {
-                        pointerId = event.getPointerId(i);
-                        registerEvent(event, i, pointerId, TouchType.TOUCH_DRAGGED);
-                    }
-                    break;
-            }
-
-            for (int i = pointerCount; i < MAX_TOUCH_POINTS; i++ ) {
-                isTouched[i] = false;
-                id[i] = -1;
-            }
-            return true;
+        int action = event.getActionMasked();
+        int pointerIndex = event.getActionIndex();
+        int pointerCount = event.getPointerCount();
+
+        int pointerId;
+        switch (action) {
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_POINTER_DOWN:
+                pointerId = event.getPointerId(pointerIndex);
+                registerEvent(event, pointerIndex, pointerId, TouchType.TOUCH_DOWN);
+                break;
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+                pointerId = event.getPointerId(pointerIndex);
+                registerEvent(event, pointerIndex, pointerId, TouchType.TOUCH_UP);
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (historicalSamples)
+                    registerHistoricalEvents(event, pointerCount);
+                for (int i = 0 ; i < pointerCount ; i++ ) {
+                    pointerId = event.getPointerId(i);
+                    registerEvent(event, i, pointerId, TouchType.TOUCH_DRAGGED);
+                }
+                break;
+        }
+
+        for (int i = pointerCount; i < MAX_TOUCH_POINTS; i++ ) {
+            isTouched[i] = false;
+            id[i] = -1;
         }
+        Runnable listener = eventListener;
+        if (listener != null)
+            listener.run();
+        return true;
+    }
+
+    /**
+     * Set the action run in the UI thread after queueing new events, for instance to wake
+     * up the thread that consumes them.
+     * @param eventListener the action or {@code null}.
+     */
+    void setEventListener(Runnable eventListener) {
+        this.eventListener = eventListener;
     }
 
     private void registerEvent(MotionEvent event, int i, int pointerId, TouchType type) {
-        TouchEvent touchEvent = touchEventPool.newObject();
-        touchEvent.type = type;
-        touchEvent.pointer = pointerId;
-        touchEvent.x = touchX[i] = (int)event.getX();
-        touchEvent.y = touchY[i] = (int)event.getY();
-        isTouched[i] = true;
+        int x = touchX[i] = (int)event.getX(i);
+        int y = touchY[i] = (int)event.getY(i);
+        isTouched[i] = type != TouchType.TOUCH_UP;
         id[i] = pointerId;
-        touchEventsBuffer.add(touchEvent);
+        queue.offer(type.ordinal(), x, y, pointerId, event.getEventTime());
+    }
+
+    private void registerHistoricalEvents(MotionEvent event, int pointerCount) {
+        int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            long time = event.getHistoricalEventTime(h);
+            for (int i = 0; i < pointerCount; i++)
+                queue.offer(TouchEventQueue.TOUCH_DRAGGED, (int) event.getHistoricalX(i, h),
+                        (int) event.getHistoricalY(i, h), event.getPointerId(i), time);
+        }
     }
 
     /**
-     * Return true if the given finger is down.
+     * Sets whether the intermediate positions that Android groups in a single move event
+     * are reported as drag events. They give more precision for fast movements at the cost
+     * of more events. By default, they are not reported.
+     * @param historicalSamples {@code true} to report the intermediate positions.
+     */
+    public void setHistoricalSamples(boolean historicalSamples) {
+        this.historicalSamples = historicalSamples;
+    }
+
+    /**
+     * Sets whether consecutive drag events of the same finger are merged when they are
+     * retrieved with {@link #getTouchEvents()} or {@link #drainTouchEvents(TouchEventBatch)}.
+     * In that case, a finger produces at most one drag event, with its last position, between
+     * two events that are not drags, so the number of events per frame is bounded.
+     * By default, they are not merged.
+     * @param dragCoalescing {@code true} to merge the drag events.
+     */
+    public void setDragCoalescing(boolean dragCoalescing) {
+        this.dragCoalescing = dragCoalescing;
+    }
+
+    /**
+     * Return true if the given finger is down. As the state is updated by the UI thread
+     * without locks, it may lag slightly behind the last event.
      * @param pointer the finger.
      * @return {@code true} if it is down.
      */
     public boolean isTouchDown(int pointer) {
-        synchronized (this) {
-            int index = getIndex(pointer);
-            return index >= 0 && index < MAX_TOUCH_POINTS && isTouched[index];
-        }
+        int index = getIndex(pointer);
+        return index >= 0 && index < MAX_TOUCH_POINTS && isTouched[index];
     }
 
     /**
@@ -155,13 +221,11 @@ public class TouchHandler implements View.OnTouchListener {
      * @return the x coordinate of the position.
      */
     public int getTouchX(int pointer) {
-        synchronized (this) {
-            int index = getIndex(pointer);
-            if (index < 0 || index >= MAX_TOUCH_POINTS)
-                return 0;
-            else
-                return touchX[index];
-        }
+        int index = getIndex(pointer);
+        if (index < 0 || index >= MAX_TOUCH_POINTS)
+            return 0;
+        else
+            return touchX[index];
     }
 
     /**
@@ -170,29 +234,54 @@ public class TouchHandler implements View.OnTouchListener {
      * @return the y coordinate of the position.
      */
     public int getTouchY(int pointer) {
-        synchronized (this) {
-            int index = getIndex(pointer);
-            if (index < 0 || index >= MAX_TOUCH_POINTS)
-                return 0;
-            else
-                return touchY[index];
-        }
+        int index = getIndex(pointer);
+        if (index < 0 || index >= MAX_TOUCH_POINTS)
+            return 0;
+        else
+            return touchY[index];
     }
 
     /**
      * The list of events that happened since the last call. The list is
-     * cleared.
+     * cleared. It must always be called from the same thread as
+     * {@link #drainTouchEvents(TouchEventBatch)}.
      * @return the list of events.
      */
     public List<TouchEvent> getTouchEvents() {
-        synchronized (this) {
-            for (TouchEvent touchEvent : touchEvents)
-                touchEventPool.free(touchEvent);
-            touchEvents.clear();
-            touchEvents.addAll(touchEventsBuffer);
-            touchEventsBuffer.clear();
-            return touchEvents;
-        }
+        drainTouchEvents(batch);
+        return touchEvents.fill(batch);
+    }
+
+    /**
+     * Replace the contents of {@code batch} with the events that happened since the
+     * last call, up to its capacity. The events that do not fit are kept for the next call.
+     * It must always be called from the same thread as {@link #getTouchEvents()}.
+     * @param batch the batch that receives the events.
+     */
+    @Override
+    public void drainTouchEvents(TouchEventBatch batch) {
+        queue.drainTo(batch, dragCoalescing);
+    }
+
+    /**
+     * @return the maximum number of events waiting to be consumed.
+     */
+    public int getQueueCapacity() {
+        return queue.getCapacity();
+    }
+
+    /**
+     * @return the number of events lost because the queue was full.
+     */
+    public long getDroppedEvents() {
+        return queue.getDroppedEvents();
+    }
+
+    /**
+     * @return the number of drag events merged with later events because the queue was full.
+     */
+    public long getCoalescedEvents() {
+        return queue.getCoalescedEvents();
     }
 
     private int getIndex(int pointerId) {
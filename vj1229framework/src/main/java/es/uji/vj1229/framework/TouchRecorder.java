@@ -0,0 +1,56 @@
+package es.uji.vj1229.framework;
+
+/**
+ * <p>Captures the sessions of a game in {@link TouchRecording}s.</p>
+ * <p>The recorder is set in the {@link GameView} with {@link GameView#setTouchRecorder} (or
+ * directly in a {@link GameLoop}) and receives the time elapsed and the touch events of every
+ * frame while it is recording. The recording can then be replayed with a {@link HeadlessRunner}.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class TouchRecorder {
+    private TouchRecording recording;
+    private boolean active;
+
+    /**
+     * Start a new recording. The previous one is discarded.
+     */
+    public synchronized void start() {
+        recording = new TouchRecording();
+        active = true;
+    }
+
+    /**
+     * Stop recording.
+     * @return the recording, or {@code null} if {@link #start()} was never called.
+     */
+    public synchronized TouchRecording stop() {
+        active = false;
+        return recording;
+    }
+
+    /**
+     * @return {@code true} if the recorder is recording.
+     */
+    public synchronized boolean isRecording() {
+        return active;
+    }
+
+    /**
+     * Called by the {@link GameLoop} in every frame.
+     * @param deltaTime the time (in seconds) elapsed since the previous frame.
+     * @param batch the events of the frame.
+     */
+    synchronized void onFrame(float deltaTime, TouchEventBatch batch) {
+        if (!active)
+            return;
+        recording.addFrame(deltaTime);
+        for (int i = 0; i < batch.count; i++)
+            recording.addEvent(batch.type[i], batch.x[i], batch.y[i], batch.pointer[i], batch.time[i]);
+    }
+}
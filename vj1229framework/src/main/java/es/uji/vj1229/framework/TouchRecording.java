@@ -0,0 +1,172 @@
+package es.uji.vj1229.framework;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * <p>A session of a game: the time elapsed in each frame and the touch events received
+ * in it.</p>
+ * <p>Recordings are captured from a running game with a {@link TouchRecorder} or built
+ * with {@link #addFrame(float)} and {@link #addEvent}, and replayed with a
+ * {@link HeadlessRunner}. They can be saved with {@link #writeTo(OutputStream)} and
+ * loaded with {@link #readFrom(InputStream)}, so that a session captured in a device
+ * can be replayed in another machine. The data are kept in arrays of primitive types.</p>
+ *
+ * <p>This file is part of the framework adapted for VJ1229, Mobile Device Applications in
+ * <a href = "https://www.uji.es">Universitat Jaume I</a> from the one in the book
+ * "Beginning Android Games" of Mario Zechner and Robert Green</p>
+ *
+ * @author Juan Miguel Vilar Torres and Juan Carlos Amengual Argudo
+ * @see <a href="https://www.apress.com/gp/book/9781430246770">Begining Android Games</a>
+ */
+public class TouchRecording {
+    private static final int MAGIC = 0x564a5452; // "VJTR"
+    private static final int VERSION = 1;
+
+    private float[] deltaTimes = new float[256];
+    private int[] firstEvents = new int[256];
+    private int frames;
+    private int[] types = new int[256], xs = new int[256], ys = new int[256], pointers = new int[256];
+    private long[] times = new long[256];
+    private int events;
+
+    /**
+     * Add a frame at the end of the recording. The events added after it belong to it.
+     * @param deltaTime the time (in seconds) elapsed since the previous frame.
+     */
+    public void addFrame(float deltaTime) {
+        if (frames == deltaTimes.length) {
+            float[] newDeltaTimes = new float[frames * 2];
+            System.arraycopy(deltaTimes, 0, newDeltaTimes, 0, frames);
+            deltaTimes = newDeltaTimes;
+            firstEvents = grow(firstEvents);
+        }
+        deltaTimes[frames] = deltaTime;
+        firstEvents[frames] = events;
+        frames++;
+    }
+
+    /**
+     * Add an event to the last frame.
+     * @param type the type of the event, the ordinal of a {@link TouchHandler.TouchType}.
+     * @param x the x coordinate.
+     * @param y the y coordinate.
+     * @param pointer the finger.
+     * @param time the time in milliseconds.
+     */
+    public void addEvent(int type, int x, int y, int pointer, long time) {
+        if (frames == 0)
+            throw new IllegalStateException("The events must belong to a frame");
+        if (events == types.length) {
+            types = grow(types);
+            xs = grow(xs);
+            ys = grow(ys);
+            pointers = grow(pointers);
+            long[] newTimes = new long[events * 2];
+            System.arraycopy(times, 0, newTimes, 0, events);
+            times = newTimes;
+        }
+        types[events] = type;
+        xs[events] = x;
+        ys[events] = y;
+        pointers[events] = pointer;
+        times[events] = time;
+        events++;
+    }
+
+    private static int[] grow(int[] array) {
+        int[] newArray = new int[array.length * 2];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    /**
+     * @return the number of frames.
+     */
+    public int getFrames() {
+        return frames;
+    }
+
+    /**
+     * @return the number of events.
+     */
+    public int getEvents() {
+        return events;
+    }
+
+    /**
+     * @param frame the frame.
+     * @return the time (in seconds) elapsed since the previous frame.
+     */
+    public float getDeltaTime(int frame) {
+        return deltaTimes[frame];
+    }
+
+    /**
+     * @param frame the frame, it can be {@link #getFrames()}.
+     * @return the position of the first event of the frame, or the number of events if
+     * the frame is {@link #getFrames()}.
+     */
+    public int getFirstEvent(int frame) {
+        return frame == frames ? events : firstEvents[frame];
+    }
+
+    /**
+     * Add an event of the recording at the end of a batch. The batch must not be full.
+     * @param event the position of the event.
+     * @param batch the batch.
+     */
+    public void copyEvent(int event, TouchEventBatch batch) {
+        batch.add(types[event], xs[event], ys[event], pointers[event], times[event]);
+    }
+
+    /**
+     * Write the recording to a stream.
+     * @param out the stream, it is not closed.
+     * @throws IOException if the stream fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(frames);
+        for (int frame = 0; frame < frames; frame++) {
+            data.writeFloat(deltaTimes[frame]);
+            int last = getFirstEvent(frame + 1);
+            data.writeInt(last - firstEvents[frame]);
+            for (int e = firstEvents[frame]; e < last; e++) {
+                data.writeByte(types[e]);
+                data.writeInt(xs[e]);
+                data.writeInt(ys[e]);
+                data.writeByte(pointers[e]);
+                data.writeLong(times[e]);
+            }
+        }
+        data.flush();
+    }
+
+    /**
+     * Read a recording written with {@link #writeTo(OutputStream)}.
+     * @param in the stream, it is not closed.
+     * @return the recording.
+     * @throws IOException if the stream fails or does not contain a recording.
+     */
+    public static TouchRecording readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION)
+            throw new IOException("The stream does not contain a touch recording");
+        TouchRecording recording = new TouchRecording();
+        int frames = data.readInt();
+        for (int frame = 0; frame < frames; frame++) {
+            recording.addFrame(data.readFloat());
+            int events = data.readInt();
+            for (int e = 0; e < events; e++)
+                recording.addEvent(data.readByte(), data.readInt(), data.readInt(),
+                        data.readByte(), data.readLong());
+        }
+        return recording;
+    }
+}
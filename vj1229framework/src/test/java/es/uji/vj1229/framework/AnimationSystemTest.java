@@ -0,0 +1,59 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class AnimationSystemTest {
+    private static final float EPSILON = 1e-4f;
+
+    private static SpriteRegion[] regions(int n) {
+        SpriteRegion[] regions = new SpriteRegion[n];
+        for (int i = 0; i < n; i++)
+            regions[i] = new SpriteRegion(null, i, 0, 1, 1);
+        return regions;
+    }
+
+    @Test
+    public void loopingWrapsTime() {
+        AnimationSystem system = new AnimationSystem(1);
+        SpriteRegion[] frames = regions(4);
+        int id = system.addInstance(system.addClip(1, true, frames));
+        system.update(0.3f);
+        assertEquals(1, system.getFrameIndex(id));
+        system.update(0.8f);
+        assertEquals(0.1f, system.getTime(id), EPSILON);
+        assertSame(frames[0], system.getRegion(id));
+        assertFalse(system.isEnded(id));
+    }
+
+    @Test
+    public void nonLoopingStopsAtEnd() {
+        AnimationSystem system = new AnimationSystem(1);
+        int id = system.addInstance(system.addClip(1, false, regions(4)));
+        system.update(5);
+        assertEquals(3, system.getFrameIndex(id));
+        assertTrue(system.isEnded(id));
+        system.play(id, system.getClip(id));
+        assertFalse(system.isEnded(id));
+        assertEquals(0, system.getFrameIndex(id));
+    }
+
+    @Test
+    public void pausedAndRemovedInstances() {
+        AnimationSystem system = new AnimationSystem(1);
+        int clip = system.addClip(1, true, regions(2));
+        int first = system.addInstance(clip);
+        int second = system.addInstance(clip);
+        system.setPaused(first, true);
+        system.update(0.6f);
+        assertEquals(0, system.getFrameIndex(first));
+        assertEquals(1, system.getFrameIndex(second));
+        system.removeInstance(first);
+        assertEquals(1, system.getInstanceCount());
+        assertEquals(first, system.addInstance(clip));
+    }
+}
@@ -0,0 +1,23 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AssetLoaderTest {
+    @Test
+    public void computesSampleSize() {
+        assertEquals(1, AssetLoader.sampleSize(1000, 800, 0, 0));
+        assertEquals(1, AssetLoader.sampleSize(1000, 800, 600, 400));
+        assertEquals(2, AssetLoader.sampleSize(1000, 800, 500, 400));
+        assertEquals(4, AssetLoader.sampleSize(2048, 2048, 300, 300));
+        assertEquals(1, AssetLoader.sampleSize(100, 100, 200, 200));
+    }
+
+    @Test
+    public void computesSizeOfScaledSheets() {
+        assertEquals(0, AssetLoader.scaledSize(512, 64, 0));
+        assertEquals(256, AssetLoader.scaledSize(512, 64, 32));
+        assertEquals(300, AssetLoader.scaledSize(200, 40, 60));
+    }
+}
@@ -0,0 +1,52 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+
+public class BitmapFontTest {
+    private final char[] buffer = new char[32];
+
+    private String formatInt(int value) {
+        return new String(buffer, 0, BitmapFont.formatInt(value, buffer));
+    }
+
+    private String formatFloat(float value, int decimals) {
+        return new String(buffer, 0, BitmapFont.formatFloat(value, decimals, buffer));
+    }
+
+    @Test
+    public void formatsIntegers() {
+        assertEquals("0", formatInt(0));
+        assertEquals("-42", formatInt(-42));
+        assertEquals(Integer.toString(Integer.MIN_VALUE), formatInt(Integer.MIN_VALUE));
+        assertEquals(Integer.toString(Integer.MAX_VALUE), formatInt(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void formatsFloats() {
+        assertEquals("3.14", formatFloat(3.14159f, 2));
+        assertEquals("-2.50", formatFloat(-2.5f, 2));
+        assertEquals("1.00", formatFloat(0.999f, 2));
+        assertEquals("0.00", formatFloat(-0.001f, 2));
+        assertEquals("13", formatFloat(12.5f, 0));
+        assertEquals("NaN", formatFloat(Float.NaN, 2));
+    }
+
+    @Test
+    public void formatsFloatsBeyondTheDigitsOfALong() {
+        assertEquals(new BigDecimal(9.3e9f).setScale(9).toPlainString(), formatFloat(9.3e9f, 9));
+        assertEquals(new BigDecimal(-5e17f).setScale(9).toPlainString(), formatFloat(-5e17f, 9));
+        assertEquals(new BigDecimal(1e15f).setScale(2).toPlainString(), formatFloat(1e15f, 2));
+    }
+
+    @Test
+    public void formatsHugeFloatsInScientificNotation() {
+        assertEquals("1.00E20", formatFloat(1e20f, 2));
+        assertEquals("-1.000000020E20", formatFloat(-1e20f, 9));
+        assertEquals("3.402823466E38", formatFloat(Float.MAX_VALUE, 9));
+        assertEquals("4E18", formatFloat(4e18f, 0));
+    }
+}
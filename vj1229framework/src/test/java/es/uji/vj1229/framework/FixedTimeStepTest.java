@@ -0,0 +1,28 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FixedTimeStepTest {
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    public void accumulatesPartialSteps() {
+        FixedTimeStep timeStep = new FixedTimeStep(10, 5);
+        assertEquals(0, timeStep.advance(0.05f));
+        assertEquals(0.5f, timeStep.getAlpha(), EPSILON);
+        assertEquals(1, timeStep.advance(0.07f));
+        assertEquals(0.2f, timeStep.getAlpha(), EPSILON);
+        assertEquals(2, timeStep.advance(0.2f));
+    }
+
+    @Test
+    public void capsStepsAfterStall() {
+        FixedTimeStep timeStep = new FixedTimeStep(10, 3);
+        assertEquals(3, timeStep.advance(1.05f));
+        assertEquals(7, timeStep.getDroppedSteps());
+        assertEquals(0.5f, timeStep.getAlpha(), EPSILON);
+        assertEquals(0, timeStep.advance(0.01f));
+    }
+}
@@ -0,0 +1,73 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FrameStatsTest {
+    private static final float EPSILON = 1e-4f;
+
+    private static void frame(FrameStats stats, long updateNanos) {
+        stats.beginFrame();
+        stats.record(FrameStats.Phase.UPDATE, updateNanos);
+        stats.endFrame();
+    }
+
+    @Test
+    public void keepsRollingWindow() {
+        FrameStats stats = new FrameStats(3);
+        frame(stats, 10_000_000);
+        frame(stats, 1_000_000);
+        frame(stats, 2_000_000);
+        frame(stats, 3_000_000);
+        assertEquals(4, stats.getFrames());
+        assertEquals(2f, stats.getAverageMillis(FrameStats.Phase.UPDATE), EPSILON);
+        assertEquals(3f, stats.getMaxMillis(FrameStats.Phase.UPDATE), EPSILON);
+        assertEquals(3f, stats.getLastMillis(FrameStats.Phase.UPDATE), EPSILON);
+    }
+
+    @Test
+    public void computesPercentiles() {
+        FrameStats stats = new FrameStats(10);
+        for (int i = 0; i < 9; i++)
+            frame(stats, 1_200_000);
+        frame(stats, 100_000_000);
+        assertEquals(1.5f, stats.getPercentileMillis(FrameStats.Phase.UPDATE, 50), EPSILON);
+        assertEquals(100f, stats.getPercentileMillis(FrameStats.Phase.UPDATE, 100), EPSILON);
+        assertEquals(100f, stats.getPercentileMillis(FrameStats.Phase.UPDATE, 95), EPSILON);
+    }
+
+    @Test
+    public void countsJankFrames() {
+        FrameStats stats = new FrameStats(10);
+        stats.setFrameBudget(1000);
+        frame(stats, 0);
+        assertEquals(0, stats.getJankFrames());
+        stats.setFrameBudget(-1);
+        frame(stats, 0);
+        assertEquals(1, stats.getJankFrames());
+    }
+
+    @Test
+    public void reportsSnapshots() {
+        FrameStats stats = new FrameStats(10);
+        List<FrameStats.Snapshot> reports = new ArrayList<>();
+        stats.setListener(reports::add, 2);
+        frame(stats, 1_000_000);
+        frame(stats, 200_000_000);
+        frame(stats, 3_000_000);
+        assertEquals(1, reports.size());
+        FrameStats.Snapshot snapshot = reports.get(0);
+        frame(stats, 4_000_000);
+        assertEquals(2, reports.size());
+        assertEquals(2, snapshot.getFrames());
+        assertEquals(200f, snapshot.getLastMillis(FrameStats.Phase.UPDATE), EPSILON);
+        assertEquals(100.5f, snapshot.getAverageMillis(FrameStats.Phase.UPDATE), EPSILON);
+        assertEquals(200f, snapshot.getMaxMillis(FrameStats.Phase.UPDATE), EPSILON);
+        assertEquals(200f, snapshot.getPercentileMillis(FrameStats.Phase.UPDATE, 99), EPSILON);
+        assertEquals(1.5f, snapshot.getPercentileMillis(FrameStats.Phase.UPDATE, 50), EPSILON);
+    }
+}
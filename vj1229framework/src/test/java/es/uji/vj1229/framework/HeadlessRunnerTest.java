@@ -0,0 +1,98 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class HeadlessRunnerTest {
+    private static final float EPSILON = 1e-6f;
+
+    private static class CountingProcessor implements IBatchEventProcessor {
+        int updates, events, lastX;
+        float time;
+
+        @Override
+        public void onUpdate(float deltaTime, TouchEventBatch touchEvents) {
+            updates++;
+            time += deltaTime;
+            events += touchEvents.count;
+            if (touchEvents.count > 0)
+                lastX = touchEvents.x[touchEvents.count - 1];
+        }
+    }
+
+    private static TouchRecording tapRecording() {
+        TouchRecording recording = new TouchRecording();
+        recording.addFrame(0.02f);
+        recording.addFrame(0.02f);
+        recording.addEvent(TouchEventQueue.TOUCH_DOWN, 10, 20, 0, 100);
+        recording.addFrame(0.03f);
+        recording.addEvent(TouchEventQueue.TOUCH_UP, 11, 21, 0, 130);
+        return recording;
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void requiresAnEventProcessor() {
+        new HeadlessRunner().runFixed(1, 0.01f);
+    }
+
+    @Test
+    public void runsFixedFrames() {
+        HeadlessRunner runner = new HeadlessRunner();
+        CountingProcessor processor = new CountingProcessor();
+        runner.getGameLoop().setBatchEventProcessor(processor);
+        runner.runFixed(1000, 0.01f);
+        assertEquals(1000, processor.updates);
+        assertEquals(10f, processor.time, 1e-3f);
+        assertEquals(0, processor.events);
+    }
+
+    @Test
+    public void replaysRecording() {
+        HeadlessRunner runner = new HeadlessRunner();
+        CountingProcessor processor = new CountingProcessor();
+        runner.getGameLoop().setBatchEventProcessor(processor);
+        runner.setTouchRecording(tapRecording());
+        runner.runRecording();
+        assertEquals(3, processor.updates);
+        assertEquals(0.07f, processor.time, EPSILON);
+        assertEquals(2, processor.events);
+        assertEquals(11, processor.lastX);
+    }
+
+    @Test
+    public void deliversEventsOfFramesWithoutUpdates() {
+        HeadlessRunner runner = new HeadlessRunner();
+        CountingProcessor processor = new CountingProcessor();
+        runner.getGameLoop().setBatchEventProcessor(processor);
+        runner.getGameLoop().setFixedTimeStep(new FixedTimeStep(10, 5));
+        runner.setTouchRecording(tapRecording());
+        runner.runFixed(3, 0.04f);
+        assertEquals(1, processor.updates);
+        assertEquals(2, processor.events);
+    }
+
+    @Test
+    public void recordsAndReadsSessions() throws IOException {
+        TouchRecorder recorder = new TouchRecorder();
+        HeadlessRunner runner = new HeadlessRunner();
+        runner.getGameLoop().setBatchEventProcessor(new CountingProcessor());
+        runner.getGameLoop().setTouchRecorder(recorder);
+        runner.setTouchRecording(tapRecording());
+        recorder.start();
+        runner.runRecording();
+        TouchRecording recording = recorder.stop();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        recording.writeTo(out);
+        TouchRecording copy = TouchRecording.readFrom(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(3, copy.getFrames());
+        assertEquals(2, copy.getEvents());
+        assertEquals(0.03f, copy.getDeltaTime(2), EPSILON);
+        assertEquals(1, copy.getFirstEvent(2));
+    }
+}
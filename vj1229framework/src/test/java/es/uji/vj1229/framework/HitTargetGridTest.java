@@ -0,0 +1,109 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class HitTargetGridTest {
+    @Test
+    public void findsRectangles() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int button = grid.addRect(10, 10, 100, 50, 0);
+        assertEquals(button, grid.hitTest(10, 10));
+        assertEquals(button, grid.hitTest(109, 59));
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(110, 30));
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(5, 30));
+    }
+
+    @Test
+    public void findsCircles() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int ball = grid.addCircle(100, 100, 30, 0);
+        assertEquals(ball, grid.hitTest(100, 125));
+        assertEquals(ball, grid.hitTest(121, 121));
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(125, 125));
+    }
+
+    @Test
+    public void higherZWins() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int top = grid.addRect(0, 0, 100, 100, 5);
+        int bottom = grid.addRect(0, 0, 200, 200, 1);
+        assertEquals(top, grid.hitTest(50, 50));
+        assertEquals(bottom, grid.hitTest(150, 150));
+        grid.setZ(bottom, 10);
+        assertEquals(bottom, grid.hitTest(50, 50));
+    }
+
+    @Test
+    public void disabledTargetsAreSkipped() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int bottom = grid.addRect(0, 0, 200, 200, 0);
+        int top = grid.addRect(0, 0, 100, 100, 1);
+        grid.setEnabled(top, false);
+        assertFalse(grid.isEnabled(top));
+        assertEquals(bottom, grid.hitTest(50, 50));
+    }
+
+    @Test
+    public void movesBetweenCells() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int sprite = grid.addCircle(32, 32, 10, 0);
+        grid.setCircle(sprite, 300, 400, 10);
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(32, 32));
+        assertEquals(sprite, grid.hitTest(300, 400));
+        grid.setRect(sprite, -100, -100, 10, 10);
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(300, 400));
+        grid.setRect(sprite, 0, 0, 320, 480);
+        assertEquals(sprite, grid.hitTest(319, 479));
+    }
+
+    @Test
+    public void reusesRemovedIds() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int first = grid.addRect(0, 0, 50, 50, 0);
+        grid.addRect(100, 100, 50, 50, 0);
+        grid.remove(first);
+        assertEquals(1, grid.getTargetCount());
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(10, 10));
+        assertEquals(first, grid.addCircle(200, 200, 10, 0));
+        assertEquals(HitTargetGrid.NO_TARGET, grid.hitTest(10, 10));
+    }
+
+    @Test
+    public void resolvesBatches() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int button = grid.addRect(0, 0, 100, 100, 0);
+        TouchEventBatch batch = new TouchEventBatch(4);
+        batch.add(TouchEventQueue.TOUCH_DOWN, 50, 50, 0, 0);
+        batch.add(TouchEventQueue.TOUCH_UP, 250, 50, 0, 10);
+        assertEquals(HitTargetGrid.NO_TARGET, batch.target[0]);
+        grid.resolve(batch);
+        assertEquals(button, batch.target[0]);
+        assertEquals(HitTargetGrid.NO_TARGET, batch.target[1]);
+    }
+
+    @Test
+    public void gameLoopResolvesTargets() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int button = grid.addRect(0, 0, 100, 100, 0);
+        int[] targets = new int[1];
+        GameLoop loop = new GameLoop(batch -> {
+            batch.clear();
+            batch.add(TouchEventQueue.TOUCH_DOWN, 50, 50, 0, 0);
+        }, 4);
+        loop.setBatchEventProcessor((deltaTime, touchEvents) -> targets[0] = touchEvents.target[0]);
+        loop.setHitTargetGrid(grid);
+        loop.update(0.02f);
+        assertEquals(button, targets[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsRemovedTargets() {
+        HitTargetGrid grid = new HitTargetGrid(320, 480, 64);
+        int id = grid.addRect(0, 0, 50, 50, 0);
+        grid.remove(id);
+        grid.setZ(id, 1);
+    }
+}
@@ -0,0 +1,85 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PoolTest {
+    private static final Pool.PoolObjectFactory<Object> FACTORY = Object::new;
+
+    @Test
+    public void countsHitsMissesAndDiscards() {
+        Pool<Object> pool = new Pool<>(FACTORY, 1);
+        Object a = pool.newObject();
+        Object b = pool.newObject();
+        assertEquals(2, pool.getMisses());
+        assertEquals(2, pool.getHighWaterMark());
+        pool.free(a);
+        pool.free(b);
+        assertEquals(1, pool.getDiscards());
+        assertSame(a, pool.newObject());
+        assertEquals(1, pool.getHits());
+    }
+
+    @Test
+    public void prewarmAvoidsMisses() {
+        Pool<Object> pool = new Pool<>(FACTORY, 10);
+        pool.prewarm(20);
+        assertEquals(10, pool.getFreeCount());
+        for (int i = 0; i < 10; i++)
+            pool.newObject();
+        assertEquals(0, pool.getMisses());
+        assertEquals(10, pool.getHits());
+    }
+
+    @Test
+    public void concurrentPoolReusesObjects() {
+        ConcurrentPool<Object> pool = new ConcurrentPool<>(FACTORY, 8, 4);
+        pool.prewarm(8);
+        assertEquals(8, pool.getFreeCount());
+        Object object = pool.newObject();
+        pool.free(object);
+        assertEquals(1, pool.getHits());
+        assertEquals(0, pool.getMisses());
+        assertEquals(8, pool.getFreeCount());
+    }
+
+    @Test
+    public void concurrentPoolRespectsMaxSize() {
+        ConcurrentPool<Object> pool = new ConcurrentPool<>(FACTORY, 10, 4);
+        pool.prewarm(20);
+        assertEquals(10, pool.getFreeCount());
+        for (int i = 0; i < 5; i++)
+            pool.free(new Object());
+        assertEquals(10, pool.getFreeCount());
+        assertEquals(5, pool.getDiscards());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void debugDetectsDoubleFree() {
+        Pool<Object> pool = new Pool<>(FACTORY, 10);
+        pool.enableDebug(false);
+        Object object = pool.newObject();
+        pool.free(object);
+        pool.free(object);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void debugDetectsForeignFree() {
+        Pool<Object> pool = new Pool<>(FACTORY, 10);
+        pool.enableDebug(false);
+        pool.free(new Object());
+    }
+
+    @Test
+    public void debugReportsLeaks() {
+        Pool<Object> pool = new Pool<>(FACTORY, 10);
+        pool.enableDebug(true);
+        Object leaked = pool.newObject();
+        pool.free(pool.newObject());
+        assertEquals(1, pool.getOutstandingObjects().size());
+        assertTrue(pool.getOutstandingObjects().get(leaked) != null);
+    }
+}
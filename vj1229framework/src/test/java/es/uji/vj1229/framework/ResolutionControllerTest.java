@@ -0,0 +1,75 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ResolutionControllerTest {
+    private static final float EPSILON = 1e-6f;
+
+    private static boolean frames(ResolutionController controller, int n, float millis) {
+        boolean changed = false;
+        for (int i = 0; i < n; i++)
+            changed |= controller.onFrame(millis);
+        return changed;
+    }
+
+    @Test
+    public void startsAtMaximum() {
+        ResolutionController controller = new ResolutionController(0.5f, 1, 0.1f, 10);
+        assertEquals(1, controller.getScale(), EPSILON);
+    }
+
+    @Test
+    public void decreasesAfterSlowWindow() {
+        ResolutionController controller = new ResolutionController(0.5f, 1, 0.1f, 10);
+        controller.setFrameBudget(16);
+        assertFalse(frames(controller, 9, 20));
+        assertTrue(controller.onFrame(20));
+        assertEquals(0.9f, controller.getScale(), EPSILON);
+    }
+
+    @Test
+    public void staysWithinBounds() {
+        ResolutionController controller = new ResolutionController(0.5f, 1, 0.1f, 10);
+        controller.setFrameBudget(16);
+        frames(controller, 200, 40);
+        assertEquals(0.5f, controller.getScale(), EPSILON);
+        frames(controller, 1000, 1);
+        assertEquals(1, controller.getScale(), EPSILON);
+    }
+
+    @Test
+    public void needsSeveralFastWindowsToIncrease() {
+        ResolutionController controller = new ResolutionController(0.5f, 1, 0.1f, 10);
+        controller.setFrameBudget(16);
+        frames(controller, 10, 20);
+        assertFalse(frames(controller, 20, 5));
+        assertTrue(frames(controller, 10, 5));
+        assertEquals(1, controller.getScale(), EPSILON);
+    }
+
+    @Test
+    public void keepsScaleBetweenThresholds() {
+        ResolutionController controller = new ResolutionController(0.5f, 1, 0.1f, 10);
+        controller.setFrameBudget(16);
+        frames(controller, 10, 20);
+        assertFalse(frames(controller, 100, 13));
+        assertEquals(0.9f, controller.getScale(), EPSILON);
+    }
+
+    @Test
+    public void resetGoesBackToMaximum() {
+        ResolutionController controller = new ResolutionController(0.5f, 1, 0.1f, 10);
+        frames(controller, 30, 40);
+        controller.reset();
+        assertEquals(1, controller.getScale(), EPSILON);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongBounds() {
+        new ResolutionController(1, 0.5f, 0.1f, 10);
+    }
+}
@@ -0,0 +1,157 @@
+package es.uji.vj1229.framework;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TouchEventQueueTest {
+    @Test
+    public void keepsOrder() {
+        TouchEventQueue queue = new TouchEventQueue(4, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 3; i++)
+            queue.offer(TouchEventQueue.TOUCH_DRAGGED, i, 10 * i, 0, i);
+        for (int i = 0; i < 3; i++) {
+            assertTrue(queue.poll());
+            assertEquals(i, queue.getX());
+            assertEquals(10 * i, queue.getY());
+        }
+        assertFalse(queue.poll());
+    }
+
+    @Test
+    public void dropsOldestWhenFull() {
+        TouchEventQueue queue = new TouchEventQueue(4, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        for (int i = 0; i < 6; i++)
+            queue.offer(TouchEventQueue.TOUCH_DOWN, i, 0, i, i);
+        assertEquals(2, queue.getDroppedEvents());
+        for (int i = 2; i < 6; i++) {
+            assertTrue(queue.poll());
+            assertEquals(i, queue.getX());
+        }
+        assertFalse(queue.poll());
+    }
+
+    @Test
+    public void coalescesDragsWhenFull() {
+        TouchEventQueue queue = new TouchEventQueue(2, TouchEventQueue.OverflowPolicy.COALESCE_DRAGS);
+        queue.offer(TouchEventQueue.TOUCH_DOWN, 0, 0, 0, 0);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 1, 0, 0, 1);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 2, 0, 0, 2);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 3, 0, 0, 3);
+        assertEquals(1, queue.getCoalescedEvents());
+        assertEquals(0, queue.getDroppedEvents());
+
+        assertTrue(queue.poll());
+        assertTrue(queue.poll());
+        assertEquals(1, queue.getX());
+        queue.offer(TouchEventQueue.TOUCH_UP, 4, 0, 0, 4);
+        assertEquals(2, queue.getCoalescedEvents());
+        assertTrue(queue.poll());
+        assertEquals(TouchEventQueue.TOUCH_UP, queue.getType());
+        assertFalse(queue.poll());
+    }
+
+    @Test
+    public void deliversPendingDragsWhenEmpty() {
+        TouchEventQueue queue = new TouchEventQueue(2, TouchEventQueue.OverflowPolicy.COALESCE_DRAGS);
+        queue.offer(TouchEventQueue.TOUCH_DOWN, 0, 0, 0, 0);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 1, 0, 0, 1);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 2, 0, 0, 2);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 3, 0, 0, 3);
+
+        TouchEventBatch batch = new TouchEventBatch(8);
+        queue.drainTo(batch, false);
+        assertEquals(3, batch.count);
+        assertEquals(TouchEventQueue.TOUCH_DRAGGED, batch.type[2]);
+        assertEquals(3, batch.x[2]);
+        assertEquals(3, batch.time[2]);
+
+        queue.offer(TouchEventQueue.TOUCH_UP, 3, 0, 0, 4);
+        assertEquals(1, queue.getCoalescedEvents());
+        assertTrue(queue.poll());
+        assertEquals(TouchEventQueue.TOUCH_UP, queue.getType());
+        assertFalse(queue.poll());
+    }
+
+    @Test
+    public void deliversEachPendingDragOnceInOrder() throws InterruptedException {
+        final int events = 200_000;
+        final TouchEventQueue queue = new TouchEventQueue(4, TouchEventQueue.OverflowPolicy.COALESCE_DRAGS);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < events; i++)
+                queue.offer(TouchEventQueue.TOUCH_DRAGGED, i, 0, i % 2, i);
+        });
+        producer.start();
+        long[] last = {-1, -1};
+        boolean producing;
+        do {
+            producing = producer.isAlive();
+            while (queue.poll()) {
+                int pointer = queue.getPointer();
+                assertTrue(queue.getTime() > last[pointer]);
+                assertEquals(queue.getTime(), queue.getX());
+                last[pointer] = queue.getTime();
+            }
+        } while (producing);
+        producer.join();
+        assertEquals(events - 2, last[0]);
+        assertEquals(events - 1, last[1]);
+    }
+
+    @Test
+    public void coalescesConsecutiveDragsOfEachFinger() {
+        TouchEventQueue queue = new TouchEventQueue(16, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        for (int t = 0; t < 3; t++) {
+            queue.offer(TouchEventQueue.TOUCH_DRAGGED, t, 0, 0, t);
+            queue.offer(TouchEventQueue.TOUCH_DRAGGED, 10 + t, 0, 1, t);
+        }
+        TouchEventBatch batch = new TouchEventBatch(16);
+        queue.drainTo(batch, true);
+        assertEquals(2, batch.count);
+        assertEquals(0, batch.pointer[0]);
+        assertEquals(2, batch.x[0]);
+        assertEquals(1, batch.pointer[1]);
+        assertEquals(12, batch.x[1]);
+    }
+
+    @Test
+    public void doesNotCoalesceDragsAcrossOtherEvents() {
+        TouchEventQueue queue = new TouchEventQueue(16, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 1, 0, 0, 1);
+        queue.offer(TouchEventQueue.TOUCH_DOWN, 2, 0, 1, 2);
+        queue.offer(TouchEventQueue.TOUCH_UP, 3, 0, 1, 3);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 4, 0, 0, 4);
+        TouchEventBatch batch = new TouchEventBatch(16);
+        queue.drainTo(batch, true);
+        assertEquals(4, batch.count);
+        for (int i = 0; i < 4; i++)
+            assertEquals(i + 1, batch.time[i]);
+    }
+
+    @Test
+    public void keepsTimesInOrderWhenCoalescing() {
+        TouchEventQueue queue = new TouchEventQueue(16, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 1, 0, 0, 1);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 2, 0, 1, 2);
+        queue.offer(TouchEventQueue.TOUCH_DRAGGED, 3, 0, 0, 3);
+        TouchEventBatch batch = new TouchEventBatch(16);
+        queue.drainTo(batch, true);
+        assertEquals(2, batch.count);
+        assertEquals(1, batch.pointer[0]);
+        assertEquals(2, batch.time[0]);
+        assertEquals(0, batch.pointer[1]);
+        assertEquals(3, batch.time[1]);
+    }
+
+    @Test
+    public void keepsAllDragsWithoutCoalescing() {
+        TouchEventQueue queue = new TouchEventQueue(16, TouchEventQueue.OverflowPolicy.DROP_OLDEST);
+        for (int t = 0; t < 3; t++)
+            queue.offer(TouchEventQueue.TOUCH_DRAGGED, t, 0, 0, t);
+        TouchEventBatch batch = new TouchEventBatch(16);
+        queue.drainTo(batch, false);
+        assertEquals(3, batch.count);
+    }
+}